@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.crypto.aes256;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.cryptomator.crypto.exceptions.DecryptFailedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures file content en- and decryption of {@link Aes256Cryptor} against files in the default temp directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class Aes256CryptorFileBenchmark {
+
+	private static final int RANGE_LENGTH = 64 * 1024;
+
+	@Param({"1024", "1048576", "67108864"})
+	private int fileSize;
+
+	private Aes256Cryptor cryptor;
+	private byte[] cleartext;
+	private Path encryptedFile;
+	private Path targetFile;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		cryptor = new Aes256Cryptor();
+		cleartext = new byte[fileSize];
+		new Random(42).nextBytes(cleartext);
+		encryptedFile = Files.createTempFile("benchmark", ".aes");
+		targetFile = Files.createTempFile("benchmark", ".aes");
+		try (final FileChannel channel = FileChannel.open(encryptedFile, StandardOpenOption.WRITE)) {
+			cryptor.encryptFile(new ByteArrayInputStream(cleartext), channel);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(encryptedFile);
+		Files.deleteIfExists(targetFile);
+		cryptor.swipeSensitiveData();
+	}
+
+	@Benchmark
+	public Long encryptFile() throws IOException {
+		try (final FileChannel channel = FileChannel.open(targetFile, StandardOpenOption.WRITE)) {
+			return cryptor.encryptFile(new ByteArrayInputStream(cleartext), channel);
+		}
+	}
+
+	@Benchmark
+	public Long decryptFile() throws IOException, DecryptFailedException {
+		try (final FileChannel channel = FileChannel.open(encryptedFile, StandardOpenOption.READ)) {
+			return cryptor.decryptFile(channel, new NullOutputStream());
+		}
+	}
+
+	@Benchmark
+	public Long decryptRangeInTheMiddle() throws IOException, DecryptFailedException {
+		try (final FileChannel channel = FileChannel.open(encryptedFile, StandardOpenOption.READ)) {
+			return cryptor.decryptRange(channel, new NullOutputStream(), fileSize / 2, RANGE_LENGTH);
+		}
+	}
+
+	@Benchmark
+	public Long decryptedContentLength() throws IOException {
+		try (final FileChannel channel = FileChannel.open(encryptedFile, StandardOpenOption.READ)) {
+			return cryptor.decryptedContentLength(channel);
+		}
+	}
+
+}
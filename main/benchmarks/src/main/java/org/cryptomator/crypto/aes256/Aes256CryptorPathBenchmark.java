@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.crypto.aes256;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.cryptomator.crypto.CryptorIOSupport;
+import org.cryptomator.crypto.exceptions.DecryptFailedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures path en- and decryption of {@link Aes256Cryptor}. Long names exceed the encrypted filename length limit and therefore involve
+ * the long filename metadata (kept in memory here).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class Aes256CryptorPathBenchmark {
+
+	@Param({"short", "long"})
+	private String nameLength;
+
+	private Aes256Cryptor cryptor;
+	private CryptorIOSupport ioSupport;
+	private String cleartextPath;
+	private String encryptedPath;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		cryptor = new Aes256Cryptor();
+		ioSupport = new InMemoryIOSupport();
+		final String name = "short".equals(nameLength) ? "document.txt" : StringUtils.repeat("long file name ", 20);
+		cleartextPath = "foo/bar/" + name;
+		encryptedPath = cryptor.encryptPath(cleartextPath, '/', '/', ioSupport);
+	}
+
+	@Benchmark
+	public String encryptPath() {
+		return cryptor.encryptPath(cleartextPath, '/', '/', ioSupport);
+	}
+
+	@Benchmark
+	public String decryptPath() throws DecryptFailedException {
+		return cryptor.decryptPath(encryptedPath, '/', '/', ioSupport);
+	}
+
+	private static class InMemoryIOSupport implements CryptorIOSupport {
+
+		private final Map<String, byte[]> map = new HashMap<>();
+
+		@Override
+		public void writePathSpecificMetadata(String encryptedPath, byte[] encryptedMetadata) {
+			map.put(encryptedPath, encryptedMetadata);
+		}
+
+		@Override
+		public byte[] readPathSpecificMetadata(String encryptedPath) {
+			return map.get(encryptedPath);
+		}
+
+	}
+
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.crypto.aes256;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cryptomator.crypto.exceptions.DecryptFailedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures SIV en- and decryption of a typical file name, both with fresh key expansion per operation and with a reused cipher.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AesSivCipherUtilBenchmark {
+
+	private final byte[] aesKey = new byte[32];
+	private final byte[] macKey = new byte[32];
+	private final byte[] plaintext = "some document with a typical name.txt".getBytes(StandardCharsets.UTF_8);
+	private byte[] ciphertext;
+	private AesSivCipher cipher;
+
+	@Setup(Level.Trial)
+	public void setup() throws InvalidKeyException {
+		final Random random = new Random(42);
+		random.nextBytes(aesKey);
+		random.nextBytes(macKey);
+		ciphertext = AesSivCipherUtil.sivEncrypt(aesKey, macKey, plaintext);
+		cipher = new AesSivCipher(aesKey, macKey);
+	}
+
+	@Benchmark
+	public byte[] sivEncrypt() throws InvalidKeyException {
+		return AesSivCipherUtil.sivEncrypt(aesKey, macKey, plaintext);
+	}
+
+	@Benchmark
+	public byte[] sivDecrypt() throws InvalidKeyException, DecryptFailedException {
+		return AesSivCipherUtil.sivDecrypt(aesKey, macKey, ciphertext);
+	}
+
+	@Benchmark
+	public byte[] sivEncryptWithReusedCipher() {
+		return cipher.encrypt(plaintext);
+	}
+
+	@Benchmark
+	public byte[] sivDecryptWithReusedCipher() throws DecryptFailedException {
+		return cipher.decrypt(ciphertext);
+	}
+
+}
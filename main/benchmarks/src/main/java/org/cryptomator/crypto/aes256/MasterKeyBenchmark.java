@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.crypto.aes256;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.cryptomator.crypto.exceptions.DecryptFailedException;
+import org.cryptomator.crypto.exceptions.UnsupportedKeyLengthException;
+import org.cryptomator.crypto.exceptions.WrongPasswordException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures masterkey en- and decryption, which is dominated by the scrypt key derivation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MasterKeyBenchmark {
+
+	private static final String PASSWORD = "benchmark";
+
+	private Aes256Cryptor cryptor;
+	private byte[] masterKeyFile;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		cryptor = new Aes256Cryptor();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cryptor.encryptMasterKey(out, PASSWORD);
+		masterKeyFile = out.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] encryptMasterKey() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cryptor.encryptMasterKey(out, PASSWORD);
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public void decryptMasterKey() throws IOException, DecryptFailedException, WrongPasswordException, UnsupportedKeyLengthException {
+		cryptor.decryptMasterKey(new ByteArrayInputStream(masterKeyFile), PASSWORD);
+	}
+
+}
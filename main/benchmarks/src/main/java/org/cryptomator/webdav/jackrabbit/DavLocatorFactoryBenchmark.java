@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.webdav.jackrabbit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jackrabbit.webdav.DavResourceLocator;
+import org.cryptomator.crypto.aes256.Aes256Cryptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the resource path to repository path mapping of {@link DavLocatorFactoryImpl} with a warm and a cold path cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DavLocatorFactoryBenchmark {
+
+	private static final String PREFIX = "http://localhost/";
+	private static final String RESOURCE_PATH = "/projects/cryptomator/main/core/pom.xml";
+
+	private Path fsRoot;
+	private Aes256Cryptor cryptor;
+	private DavLocatorFactoryImpl factory;
+	private DavResourceLocator locator;
+	private String repositoryPath;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		fsRoot = Files.createTempDirectory("benchmark");
+		cryptor = new Aes256Cryptor();
+		factory = new DavLocatorFactoryImpl(fsRoot.toString(), cryptor);
+		locator = factory.createResourceLocator(PREFIX, null, RESOURCE_PATH);
+		repositoryPath = locator.getRepositoryPath();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		cryptor.swipeSensitiveData();
+		FileUtils.deleteDirectory(fsRoot.toFile());
+	}
+
+	@Benchmark
+	public String encryptWithCacheHit() {
+		return locator.getRepositoryPath();
+	}
+
+	@Benchmark
+	public DavResourceLocator decryptWithCacheHit() {
+		return factory.createResourceLocator(PREFIX, null, repositoryPath, false);
+	}
+
+	@Benchmark
+	public String encryptWithCacheMiss() {
+		factory.swipeSensitiveData();
+		return locator.getRepositoryPath();
+	}
+
+	@Benchmark
+	public DavResourceLocator decryptWithCacheMiss() {
+		factory.swipeSensitiveData();
+		return factory.createResourceLocator(PREFIX, null, repositoryPath, false);
+	}
+
+}
@@ -15,6 +15,7 @@ import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 import java.util.List;
 
@@ -51,16 +52,20 @@ abstract class AbstractEncryptedNode implements DavResource {
 	protected final DavSession session;
 	protected final LockManager lockManager;
 	protected final Cryptor cryptor;
+	protected final ContentLengthCache contentLengthCache;
+	protected final BasicFileAttributes attributes;
 	protected final DavPropertySet properties;
+	private boolean propertiesDetermined;
 
-	protected AbstractEncryptedNode(DavResourceFactory factory, DavResourceLocator locator, DavSession session, LockManager lockManager, Cryptor cryptor) {
+	protected AbstractEncryptedNode(DavResourceFactory factory, DavResourceLocator locator, DavSession session, LockManager lockManager, Cryptor cryptor, ContentLengthCache contentLengthCache, BasicFileAttributes attributes) {
 		this.factory = factory;
 		this.locator = locator;
 		this.session = session;
 		this.lockManager = lockManager;
 		this.cryptor = cryptor;
+		this.contentLengthCache = contentLengthCache;
+		this.attributes = attributes;
 		this.properties = new DavPropertySet();
-		this.determineProperties();
 	}
 
 	@Override
@@ -73,10 +78,12 @@ abstract class AbstractEncryptedNode implements DavResource {
 		return METHODS;
 	}
 
+	/**
+	 * @return <code>true</code> if the resource existed, when its attributes have been read by the {@link DavResourceFactoryImpl factory}.
+	 */
 	@Override
 	public boolean exists() {
-		final Path path = ResourcePathUtils.getPhysicalPath(this);
-		return Files.exists(path);
+		return attributes != null;
 	}
 
 	@Override
@@ -107,16 +114,26 @@ abstract class AbstractEncryptedNode implements DavResource {
 
 	@Override
 	public long getModificationTime() {
-		final Path path = ResourcePathUtils.getPhysicalPath(this);
-		try {
-			return Files.getLastModifiedTime(path).toMillis();
-		} catch (IOException e) {
+		if (attributes == null) {
 			return -1;
 		}
+		return attributes.lastModifiedTime().toMillis();
 	}
 
+	/**
+	 * Adds all properties of this resource to {@link #properties}. Invoked lazily on first access to all properties. Properties, that have
+	 * already been added by {@link #determineProperty(DavPropertyName)}, don't need to be determined again.
+	 */
 	protected abstract void determineProperties();
 
+	/**
+	 * Adds at least the property with the given name to {@link #properties}, if this resource has such a property. Invoked lazily on first
+	 * access to a single property. Subclasses should override this, if single properties can be determined cheaper than all properties.
+	 */
+	protected void determineProperty(DavPropertyName name) {
+		getProperties();
+	}
+
 	@Override
 	public DavPropertyName[] getPropertyNames() {
 		return getProperties().getPropertyNames();
@@ -124,11 +141,18 @@ abstract class AbstractEncryptedNode implements DavResource {
 
 	@Override
 	public DavProperty<?> getProperty(DavPropertyName name) {
-		return getProperties().get(name);
+		if (!propertiesDetermined && !properties.contains(name)) {
+			determineProperty(name);
+		}
+		return properties.get(name);
 	}
 
 	@Override
 	public DavPropertySet getProperties() {
+		if (!propertiesDetermined) {
+			determineProperties();
+			propertiesDetermined = true;
+		}
 		return properties;
 	}
 
@@ -200,19 +224,25 @@ abstract class AbstractEncryptedNode implements DavResource {
 		final Path src = ResourcePathUtils.getPhysicalPath(this);
 		final Path dst = ResourcePathUtils.getPhysicalPath(dest);
 		try {
-			// check for conflicts:
+			// check for conflicts. the destination's attributes may be outdated, as it gets removed before moving/copying, if overwriting is allowed:
 			if (Files.exists(dst) && Files.getLastModifiedTime(dst).toMillis() > Files.getLastModifiedTime(src).toMillis()) {
 				throw new DavException(DavServletResponse.SC_CONFLICT, "File at destination already exists: " + dst.toString());
 			}
+			if (isCollection() && dst.startsWith(src)) {
+				throw new DavException(DavServletResponse.SC_FORBIDDEN, "Can not move directory into itself: " + src.toString());
+			}
 
-			// move:
+			// move. encrypted names don't depend on their parent directory, so descendants of a directory are moved along without renaming them:
 			try {
 				Files.move(src, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 			} catch (AtomicMoveNotSupportedException e) {
 				Files.move(src, dst, StandardCopyOption.REPLACE_EXISTING);
 			}
+			contentLengthCache.move(src, dst, isCollection());
 		} catch (IOException e) {
 			LOG.error("Error moving file from " + src.toString() + " to " + dst.toString());
+			invalidateContentLengths(src);
+			invalidateContentLengths(dst);
 			throw new IORuntimeException(e);
 		}
 	}
@@ -222,20 +252,35 @@ abstract class AbstractEncryptedNode implements DavResource {
 		final Path src = ResourcePathUtils.getPhysicalPath(this);
 		final Path dst = ResourcePathUtils.getPhysicalPath(dest);
 		try {
-			// check for conflicts:
+			// check for conflicts. the destination's attributes may be outdated, as it gets removed before moving/copying, if overwriting is allowed:
 			if (Files.exists(dst) && Files.getLastModifiedTime(dst).toMillis() > Files.getLastModifiedTime(src).toMillis()) {
 				throw new DavException(DavServletResponse.SC_CONFLICT, "File at destination already exists: " + dst.toString());
 			}
 
-			// copy:
-			try {
-				Files.copy(src, dst, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-			} catch (AtomicMoveNotSupportedException e) {
-				Files.copy(src, dst, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+			// copy ciphertext verbatim:
+			final CiphertextCopier copier = new CiphertextCopier(cryptor.getPayloadFilesFilter());
+			if (!isCollection()) {
+				copier.copyFile(src, dst);
+			} else if (dst.startsWith(src)) {
+				throw new DavException(DavServletResponse.SC_FORBIDDEN, "Can not copy directory into itself: " + src.toString());
+			} else if (shallow) {
+				Files.createDirectories(dst);
+			} else {
+				copier.copyDirectory(src, dst);
 			}
 		} catch (IOException e) {
 			LOG.error("Error copying file from " + src.toString() + " to " + dst.toString());
 			throw new IORuntimeException(e);
+		} finally {
+			invalidateContentLengths(dst);
+		}
+	}
+
+	private void invalidateContentLengths(Path path) {
+		if (isCollection()) {
+			contentLengthCache.invalidateTree(path);
+		} else {
+			contentLengthCache.invalidate(path);
 		}
 	}
 
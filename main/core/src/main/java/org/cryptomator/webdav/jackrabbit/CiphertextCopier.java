@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.webdav.jackrabbit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.DirectoryStream.Filter;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies encrypted files and directory trees without decrypting them. This is possible, as encrypted names don't depend on the directory
+ * containing them and file contents don't depend on their names.<br/>
+ * File contents are transferred from channel to channel, which lets the operating system copy them without passing them through the heap.
+ * Subdirectories are copied in parallel on a pool created for each directory copy.
+ */
+final class CiphertextCopier {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CiphertextCopier.class);
+	private static final long PROGRESS_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+	private final Filter<Path> payloadFilesFilter;
+	private final AtomicLong copiedFiles = new AtomicLong();
+	private final AtomicLong copiedBytes = new AtomicLong();
+	private final long startTime = System.nanoTime();
+	private final AtomicLong nextProgressLogTime = new AtomicLong(startTime + PROGRESS_LOG_INTERVAL_NANOS);
+
+	/**
+	 * @param payloadFilesFilter Only files and directories accepted by this filter get copied.
+	 */
+	CiphertextCopier(Filter<Path> payloadFilesFilter) {
+		this.payloadFilesFilter = payloadFilesFilter;
+	}
+
+	/**
+	 * Copies a single file. The destination file gets replaced, if it exists.
+	 */
+	void copyFile(Path src, Path dst) throws IOException {
+		transfer(src, dst);
+		LOG.debug("Copied {} bytes from {} to {}", copiedBytes.get(), src, dst);
+	}
+
+	/**
+	 * Copies a directory including all its descendants. Blocks until all subdirectories have been copied.
+	 * 
+	 * @param dst Destination directory, which gets created, if it doesn't exist yet.
+	 */
+	void copyDirectory(Path src, Path dst) throws IOException {
+		// the pool only lives as long as the copy, so no idle threads stay around between copies:
+		final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		try {
+			pool.invoke(new DirectoryCopyTask(src, dst));
+		} catch (UncheckedIOException e) {
+			throw new IOException("Error copying directory from " + src.toString() + " to " + dst.toString(), e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		final long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+		LOG.info("Copied {} files ({} bytes) from {} to {} in {} ms", copiedFiles.get(), copiedBytes.get(), src, dst, durationMillis);
+	}
+
+	private void transfer(Path src, Path dst) throws IOException {
+		try (final FileChannel in = FileChannel.open(src, StandardOpenOption.READ); //
+				final FileChannel out = FileChannel.open(dst, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			final long size = in.size();
+			long position = 0;
+			while (position < size) {
+				position += in.transferTo(position, size - position, out);
+			}
+			copiedBytes.addAndGet(size);
+		}
+		copiedFiles.incrementAndGet();
+		Files.setLastModifiedTime(dst, Files.getLastModifiedTime(src));
+	}
+
+	private void logProgress() {
+		final long now = System.nanoTime();
+		final long next = nextProgressLogTime.get();
+		if (now - next >= 0 && nextProgressLogTime.compareAndSet(next, now + PROGRESS_LOG_INTERVAL_NANOS)) {
+			LOG.info("Copying... {} files ({} bytes) copied so far", copiedFiles.get(), copiedBytes.get());
+		}
+	}
+
+	/**
+	 * Copies the files of one directory and forks a task for each subdirectory.
+	 */
+	private class DirectoryCopyTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -3406517361618862387L;
+		private final Path src;
+		private final Path dst;
+
+		private DirectoryCopyTask(Path src, Path dst) {
+			this.src = src;
+			this.dst = dst;
+		}
+
+		@Override
+		protected void compute() {
+			final List<DirectoryCopyTask> subtasks = new ArrayList<>();
+			try {
+				Files.createDirectories(dst);
+				try (final DirectoryStream<Path> ds = Files.newDirectoryStream(src, payloadFilesFilter)) {
+					for (final Path child : ds) {
+						final Path childDst = dst.resolve(child.getFileName().toString());
+						final BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+						if (attrs.isDirectory()) {
+							subtasks.add(new DirectoryCopyTask(child, childDst));
+						} else if (attrs.isRegularFile()) {
+							transfer(child, childDst);
+							logProgress();
+						}
+					}
+				}
+				ForkJoinTask.invokeAll(subtasks);
+				Files.setLastModifiedTime(dst, Files.getLastModifiedTime(src));
+			} catch (IOException e) {
+				LOG.error("Error copying directory from " + src.toString() + " to " + dst.toString(), e);
+				throw new UncheckedIOException(e);
+			}
+		}
+
+	}
+
+}
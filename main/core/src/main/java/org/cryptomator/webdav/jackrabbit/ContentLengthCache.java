@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.webdav.jackrabbit;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map;
+
+import org.cryptomator.crypto.Cryptor;
+
+/**
+ * Caches decrypted content lengths of encrypted files, so listing a directory doesn't require reading the header of each file.<br/>
+ * An entry is only valid as long as the file's size and last modified time match the values it has been cached for. Resources modifying
+ * files should nevertheless {@link #invalidate(Path) invalidate} them, as the modification time might not change between two writes.<br/>
+ * Optionally the cache is persisted in the vault root, encrypted just like any other file, so headers don't need to be read again after
+ * the vault has been unlocked.
+ * 
+ * @see PersistentLruMap
+ */
+class ContentLengthCache {
+
+	static final String INDEX_FILENAME = "contentlengths.cryptomator";
+	private static final int MAX_CACHED_CONTENT_LENGTHS = 10000;
+
+	private final PersistentLruMap<Path, CachedContentLength> cache;
+
+	/**
+	 * Creates a cache, which is not persisted.
+	 */
+	ContentLengthCache(Cryptor cryptor) {
+		this.cache = new PersistentLruMap<>(cryptor, MAX_CACHED_CONTENT_LENGTHS);
+	}
+
+	/**
+	 * Creates a persistent cache and starts loading it in the background.
+	 * 
+	 * @param vaultRoot Directory containing the encrypted files and the persisted cache.
+	 */
+	ContentLengthCache(Cryptor cryptor, Path vaultRoot) {
+		this.cache = new PersistentLruMap<>(cryptor, MAX_CACHED_CONTENT_LENGTHS, vaultRoot.resolve(INDEX_FILENAME), new ContentLengthSerializer(vaultRoot));
+	}
+
+	/**
+	 * @param path Physical path of an encrypted file.
+	 * @param attrs Current attributes of the file at the given path.
+	 * @return The cached content length or <code>null</code>, if unknown or outdated.
+	 */
+	public Long get(Path path, BasicFileAttributes attrs) {
+		final CachedContentLength cached = cache.get(path);
+		if (cached != null && cached.isValidFor(attrs)) {
+			return cached.contentLength;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * @param path Physical path of an encrypted file.
+	 * @param attrs Attributes of the file at the given path at the time the content length has been determined.
+	 * @param contentLength Decrypted content length.
+	 */
+	public void put(Path path, BasicFileAttributes attrs, long contentLength) {
+		cache.put(path, new CachedContentLength(attrs.size(), attrs.lastModifiedTime().toMillis(), contentLength));
+	}
+
+	/**
+	 * Removes the content length of the given file.
+	 */
+	public void invalidate(Path file) {
+		cache.remove(file);
+	}
+
+	/**
+	 * Removes the content lengths of all files beneath the given directory. Visits every cached entry, so only use this for directories.
+	 */
+	public void invalidateTree(Path dir) {
+		cache.removeIf(p -> p.startsWith(dir));
+	}
+
+	/**
+	 * Relocates the content lengths of the given path (and of all paths beneath it, if it is a directory) after the path has been moved, so
+	 * the moved files don't need to be read again. Content lengths previously cached for the destination are removed. Renaming a file
+	 * changes neither its size nor its last modified time, so relocated entries stay valid.
+	 */
+	public void move(Path src, Path dst, boolean isDirectory) {
+		if (isDirectory) {
+			cache.removeIf(p -> p.startsWith(dst));
+			cache.rekey(p -> p.startsWith(src) ? dst.resolve(src.relativize(p)) : null);
+		} else {
+			final CachedContentLength cached = cache.remove(src);
+			if (cached != null) {
+				cache.put(dst, cached);
+			} else {
+				cache.remove(dst);
+			}
+		}
+	}
+
+	/**
+	 * Saves a persistent cache and waits for it being written. Must be called before the master key gets destroyed.
+	 */
+	public void close() {
+		cache.close();
+	}
+
+	private static class CachedContentLength {
+		private final long encryptedSize;
+		private final long lastModified;
+		private final long contentLength;
+
+		private CachedContentLength(long encryptedSize, long lastModified, long contentLength) {
+			this.encryptedSize = encryptedSize;
+			this.lastModified = lastModified;
+			this.contentLength = contentLength;
+		}
+
+		private boolean isValidFor(BasicFileAttributes attrs) {
+			return encryptedSize == attrs.size() && lastModified == attrs.lastModifiedTime().toMillis();
+		}
+	}
+
+	private static class ContentLengthSerializer implements PersistentLruMap.EntrySerializer<Path, CachedContentLength> {
+
+		private final Path vaultRoot;
+
+		private ContentLengthSerializer(Path vaultRoot) {
+			this.vaultRoot = vaultRoot;
+		}
+
+		@Override
+		public void write(DataOutput out, Path path, CachedContentLength cached) throws IOException {
+			out.writeUTF(vaultRoot.relativize(path).toString());
+			out.writeLong(cached.encryptedSize);
+			out.writeLong(cached.lastModified);
+			out.writeLong(cached.contentLength);
+		}
+
+		@Override
+		public Map.Entry<Path, CachedContentLength> read(DataInput in) throws IOException {
+			final Path path = vaultRoot.resolve(in.readUTF());
+			final long encryptedSize = in.readLong();
+			final long lastModified = in.readLong();
+			final long contentLength = in.readLong();
+			return new SimpleImmutableEntry<>(path, new CachedContentLength(encryptedSize, lastModified, contentLength));
+		}
+
+	}
+
+}
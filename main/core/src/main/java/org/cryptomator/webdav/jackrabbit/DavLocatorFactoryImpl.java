@@ -12,9 +12,15 @@ import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import org.apache.commons.collections4.BidiMap;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
@@ -27,17 +33,33 @@ import org.cryptomator.crypto.CryptorIOSupport;
 import org.cryptomator.crypto.SensitiveDataSwipeListener;
 import org.cryptomator.crypto.exceptions.DecryptFailedException;
 import org.cryptomator.webdav.exceptions.DecryptFailedRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 class DavLocatorFactoryImpl implements DavLocatorFactory, SensitiveDataSwipeListener, CryptorIOSupport {
 
-	private static final int MAX_CACHED_PATHS = 10000;
+	private static final Logger LOG = LoggerFactory.getLogger(DavLocatorFactoryImpl.class);
+	static final int DEFAULT_NAME_CACHE_CAPACITY = 10000;
+	private static final String TMP_FILE_EXT = ".tmp";
 	private final Path fsRoot;
 	private final Cryptor cryptor;
-	private final BidiMap<String, String> pathCache = new BidiLRUMap<>(MAX_CACHED_PATHS); // <decryptedPath, encryptedPath>
+	private final ShardedBidiCache<String, String> nameCache; // <decryptedName, encryptedName>
+	private final NameIndex nameIndex;
 
 	DavLocatorFactoryImpl(String fsRoot, Cryptor cryptor) {
+		this(fsRoot, cryptor, DEFAULT_NAME_CACHE_CAPACITY, null);
+	}
+
+	/**
+	 * @param nameCacheCapacity Number of file names, whose en- and decrypted forms are cached. As each name is encrypted independently of
+	 *            its parent directory, paths are en- and decrypted name by name, so siblings share the cached names of their ancestors.
+	 * @param nameIndex Optional persistent index consulted before decrypting names, that are not cached. May be <code>null</code>.
+	 */
+	DavLocatorFactoryImpl(String fsRoot, Cryptor cryptor, int nameCacheCapacity, NameIndex nameIndex) {
 		this.fsRoot = FileSystems.getDefault().getPath(fsRoot);
 		this.cryptor = cryptor;
+		this.nameCache = new ShardedBidiCache<>(nameCacheCapacity);
+		this.nameIndex = nameIndex;
 		cryptor.addSensitiveDataSwipeListener(this);
 	}
 
@@ -76,49 +98,138 @@ class DavLocatorFactoryImpl implements DavLocatorFactory, SensitiveDataSwipeList
 		}
 	}
 
+	/**
+	 * Creates locators for multiple repository paths at once. Uncached names are decrypted in a single batch.
+	 * 
+	 * @return Locators in the same order as the given repository paths. <code>null</code> for paths, whose decryption failed.
+	 */
+	List<DavResourceLocator> createResourceLocators(String prefix, String workspacePath, List<String> repositoryPaths) {
+		final String fullPrefix = prefix.endsWith("/") ? prefix : prefix + "/";
+		final List<String> resourcePaths = getResourcePaths(repositoryPaths);
+		final List<DavResourceLocator> result = new ArrayList<>(resourcePaths.size());
+		for (final String resourcePath : resourcePaths) {
+			result.add(resourcePath == null ? null : new DavResourceLocatorImpl(fullPrefix, resourcePath));
+		}
+		return result;
+	}
+
 	/* Encryption/Decryption */
 
 	/**
 	 * @return Encrypted absolute paths on the file system.
 	 */
 	private String getRepositoryPath(String resourcePath) {
-		String encryptedPath = pathCache.get(resourcePath);
-		if (encryptedPath == null) {
-			encryptedPath = encryptRepositoryPath(resourcePath);
-			pathCache.put(resourcePath, encryptedPath);
+		Path result = fsRoot;
+		for (final String cleartextName : StringUtils.split(StringUtils.defaultString(resourcePath), '/')) {
+			result = result.resolve(getEncryptedName(cleartextName));
 		}
-		return encryptedPath;
+		return result.toString();
 	}
 
-	private String encryptRepositoryPath(String resourcePath) {
-		if (resourcePath == null) {
-			return fsRoot.toString();
+	private String getEncryptedName(String cleartextName) {
+		String encryptedName = nameCache.get(cleartextName);
+		if (encryptedName == null) {
+			encryptedName = cryptor.encryptPath(cleartextName, FileSystems.getDefault().getSeparator().charAt(0), '/', this);
+			cacheName(cleartextName, encryptedName);
 		}
-		final String encryptedRepoPath = cryptor.encryptPath(resourcePath, FileSystems.getDefault().getSeparator().charAt(0), '/', this);
-		return fsRoot.resolve(encryptedRepoPath).toString();
+		return encryptedName;
 	}
 
 	/**
 	 * @return Decrypted path for use in URIs.
 	 */
 	private String getResourcePath(String repositoryPath) throws DecryptFailedException {
-		String decryptedPath = pathCache.getKey(repositoryPath);
-		if (decryptedPath == null) {
-			decryptedPath = decryptResourcePath(repositoryPath);
-			pathCache.put(decryptedPath, repositoryPath);
+		final Path relativeRepositoryPath = fsRoot.relativize(FileSystems.getDefault().getPath(repositoryPath));
+		if (relativeRepositoryPath.toString().isEmpty()) {
+			return null;
+		}
+		final List<String> cleartextNames = new ArrayList<>(relativeRepositoryPath.getNameCount());
+		for (final Path encryptedName : relativeRepositoryPath) {
+			cleartextNames.add(getCleartextName(encryptedName.toString()));
 		}
-		return decryptedPath;
+		return StringUtils.join(cleartextNames, '/');
 	}
 
-	private String decryptResourcePath(String repositoryPath) throws DecryptFailedException {
-		final Path absRepoPath = FileSystems.getDefault().getPath(repositoryPath);
-		if (fsRoot.equals(absRepoPath)) {
-			return null;
-		} else {
-			final Path relativeRepositoryPath = fsRoot.relativize(absRepoPath);
-			final String resourcePath = cryptor.decryptPath(relativeRepositoryPath.toString(), FileSystems.getDefault().getSeparator().charAt(0), '/', this);
-			return resourcePath;
+	private String getCleartextName(String encryptedName) throws DecryptFailedException {
+		String cleartextName = nameCache.getKey(encryptedName);
+		if (cleartextName == null) {
+			cleartextName = getIndexedName(encryptedName);
+		}
+		if (cleartextName == null) {
+			cleartextName = cryptor.decryptPath(encryptedName, FileSystems.getDefault().getSeparator().charAt(0), '/', this);
+			cacheName(cleartextName, encryptedName);
+		}
+		return cleartextName;
+	}
+
+	/**
+	 * @return Cleartext name from the name index (adding it to the cache) or <code>null</code>, if not indexed.
+	 */
+	private String getIndexedName(String encryptedName) {
+		final String cleartextName = (nameIndex == null) ? null : nameIndex.get(encryptedName);
+		if (cleartextName != null) {
+			nameCache.put(cleartextName, encryptedName);
+		}
+		return cleartextName;
+	}
+
+	private void cacheName(String cleartextName, String encryptedName) {
+		nameCache.put(cleartextName, encryptedName);
+		if (nameIndex != null) {
+			nameIndex.put(encryptedName, cleartextName);
+		}
+	}
+
+	/**
+	 * Decrypts all uncached names of the given paths in a single batch.
+	 * 
+	 * @return Decrypted paths for use in URIs in the same order as the given paths or <code>null</code> for paths, whose decryption failed.
+	 */
+	private List<String> getResourcePaths(List<String> repositoryPaths) {
+		final List<Path> relativeRepositoryPaths = new ArrayList<>(repositoryPaths.size());
+		final Set<String> uncachedNames = new HashSet<>();
+		for (final String repositoryPath : repositoryPaths) {
+			final Path relativeRepositoryPath = fsRoot.relativize(FileSystems.getDefault().getPath(repositoryPath));
+			relativeRepositoryPaths.add(relativeRepositoryPath);
+			for (final Path encryptedName : relativeRepositoryPath) {
+				if (nameCache.getKey(encryptedName.toString()) == null && getIndexedName(encryptedName.toString()) == null) {
+					uncachedNames.add(encryptedName.toString());
+				}
+			}
 		}
+
+		// decrypt uncached names:
+		final Map<String, String> decryptedNames = new HashMap<>(uncachedNames.size());
+		if (!uncachedNames.isEmpty()) {
+			final List<String> encryptedNames = new ArrayList<>(uncachedNames);
+			final List<String> cleartextNames = cryptor.decryptPaths(encryptedNames, FileSystems.getDefault().getSeparator().charAt(0), '/', this);
+			for (int i = 0; i < encryptedNames.size(); i++) {
+				final String cleartextName = cleartextNames.get(i);
+				if (cleartextName != null) {
+					decryptedNames.put(encryptedNames.get(i), cleartextName);
+					cacheName(cleartextName, encryptedNames.get(i));
+				}
+			}
+		}
+
+		// assemble paths:
+		final List<String> result = new ArrayList<>(repositoryPaths.size());
+		for (final Path relativeRepositoryPath : relativeRepositoryPaths) {
+			final List<String> cleartextNames = new ArrayList<>(relativeRepositoryPath.getNameCount());
+			for (final Path encryptedName : relativeRepositoryPath) {
+				final String cleartextName = decryptedNames.computeIfAbsent(encryptedName.toString(), nameCache::getKey);
+				if (cleartextName == null) {
+					break;
+				}
+				cleartextNames.add(cleartextName);
+			}
+			if (cleartextNames.size() == relativeRepositoryPath.getNameCount()) {
+				result.add(StringUtils.join(cleartextNames, '/'));
+			} else {
+				result.add(null);
+			}
+		}
+		return result;
 	}
 
 	/* CryptorIOSupport */
@@ -126,7 +237,14 @@ class DavLocatorFactoryImpl implements DavLocatorFactory, SensitiveDataSwipeList
 	@Override
 	public void writePathSpecificMetadata(String encryptedPath, byte[] encryptedMetadata) throws IOException {
 		final Path metaDataFile = fsRoot.resolve(encryptedPath);
-		Files.write(metaDataFile, encryptedMetadata, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DSYNC);
+		// replace atomically, so concurrent readers never see a partially written file:
+		final Path tmpFile = Files.createTempFile(fsRoot, metaDataFile.getFileName().toString(), TMP_FILE_EXT);
+		try {
+			Files.write(tmpFile, encryptedMetadata, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DSYNC);
+			Files.move(tmpFile, metaDataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmpFile);
+		}
 	}
 
 	@Override
@@ -143,7 +261,8 @@ class DavLocatorFactoryImpl implements DavLocatorFactory, SensitiveDataSwipeList
 
 	@Override
 	public void swipeSensitiveData() {
-		pathCache.clear();
+		LOG.debug("Clearing name cache ({}).", nameCache);
+		nameCache.clear();
 	}
 
 	/* Locator */
@@ -8,9 +8,10 @@
  ******************************************************************************/
 package org.cryptomator.webdav.jackrabbit;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.concurrent.ExecutorService;
+import java.nio.file.attribute.BasicFileAttributes;
 
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.jackrabbit.webdav.DavException;
@@ -30,27 +31,44 @@ class DavResourceFactoryImpl implements DavResourceFactory {
 
 	private final LockManager lockManager = new SimpleLockManager();
 	private final Cryptor cryptor;
+	private final ContentLengthCache contentLengthCache;
 	private final CryptoWarningHandler cryptoWarningHandler;
-	private final ExecutorService backgroundTaskExecutor;
 
-	DavResourceFactoryImpl(Cryptor cryptor, CryptoWarningHandler cryptoWarningHandler, ExecutorService backgroundTaskExecutor) {
+	DavResourceFactoryImpl(Cryptor cryptor, CryptoWarningHandler cryptoWarningHandler, ContentLengthCache contentLengthCache) {
 		this.cryptor = cryptor;
+		this.contentLengthCache = contentLengthCache;
 		this.cryptoWarningHandler = cryptoWarningHandler;
-		this.backgroundTaskExecutor = backgroundTaskExecutor;
 	}
 
 	@Override
 	public DavResource createResource(DavResourceLocator locator, DavServletRequest request, DavServletResponse response) throws DavException {
 		final Path path = ResourcePathUtils.getPhysicalPath(locator);
+		final BasicFileAttributes attrs = readAttributes(path);
 		final String rangeHeader = request.getHeader(HttpHeader.RANGE.asString());
 
-		if (Files.isRegularFile(path) && DavMethods.METHOD_GET.equals(request.getMethod()) && rangeHeader != null) {
+		if (isRegularFile(attrs) && DavMethods.METHOD_GET.equals(request.getMethod()) && rangeHeader != null) {
+			final EncryptedFilePart filePart;
+			try {
+				filePart = createFilePart(locator, request.getDavSession(), request, attrs);
+			} catch (IllegalArgumentException e) {
+				// invalid range headers may be ignored (see RFC 7233, section 3.1), so deliver the complete file:
+				return createFile(locator, request.getDavSession(), attrs);
+			}
+			// decide satisfiability before the status is set to 206, so unsatisfiable requests don't end up as empty partial content:
+			final Long fileSize = getFileSize(filePart);
+			if (fileSize == null) {
+				// ranges can't be resolved without knowing the file size, so deliver as much of the complete file as can be decrypted:
+				return createFile(locator, request.getDavSession(), attrs);
+			} else if (!filePart.isSatisfiable(fileSize)) {
+				response.setHeader(HttpHeader.CONTENT_RANGE.asString(), EncryptedFilePart.getUnsatisfiedContentRangeHeader(fileSize));
+				throw new DavException(DavServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			}
 			response.setStatus(HttpStatus.SC_PARTIAL_CONTENT);
-			return createFilePart(locator, request.getDavSession(), request);
-		} else if (Files.isRegularFile(path) || DavMethods.METHOD_PUT.equals(request.getMethod())) {
-			return createFile(locator, request.getDavSession());
-		} else if (Files.isDirectory(path) || DavMethods.METHOD_MKCOL.equals(request.getMethod())) {
-			return createDirectory(locator, request.getDavSession());
+			return filePart;
+		} else if (isRegularFile(attrs) || DavMethods.METHOD_PUT.equals(request.getMethod())) {
+			return createFile(locator, request.getDavSession(), attrs);
+		} else if (isDirectory(attrs) || DavMethods.METHOD_MKCOL.equals(request.getMethod())) {
+			return createDirectory(locator, request.getDavSession(), attrs);
 		} else {
 			return createNonExisting(locator, request.getDavSession());
 		}
@@ -59,30 +77,66 @@ class DavResourceFactoryImpl implements DavResourceFactory {
 	@Override
 	public DavResource createResource(DavResourceLocator locator, DavSession session) throws DavException {
 		final Path path = ResourcePathUtils.getPhysicalPath(locator);
+		final BasicFileAttributes attrs = readAttributes(path);
 
-		if (path != null && Files.isRegularFile(path)) {
-			return createFile(locator, session);
-		} else if (path != null && Files.isDirectory(path)) {
-			return createDirectory(locator, session);
+		if (isRegularFile(attrs)) {
+			return createFile(locator, session, attrs);
+		} else if (isDirectory(attrs)) {
+			return createDirectory(locator, session, attrs);
 		} else {
 			return createNonExisting(locator, session);
 		}
 	}
 
-	private EncryptedFile createFilePart(DavResourceLocator locator, DavSession session, DavServletRequest request) {
-		return new EncryptedFilePart(this, locator, session, request, lockManager, cryptor, cryptoWarningHandler, backgroundTaskExecutor);
+	/**
+	 * Reads all attributes needed by a resource at once, as each file system access might be expensive (e.g. on network drives).
+	 * 
+	 * @return The attributes or <code>null</code>, if the path doesn't point to a readable file or directory.
+	 */
+	private BasicFileAttributes readAttributes(Path path) {
+		if (path == null) {
+			return null;
+		}
+		try {
+			return Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private boolean isRegularFile(BasicFileAttributes attrs) {
+		return attrs != null && attrs.isRegularFile();
+	}
+
+	private boolean isDirectory(BasicFileAttributes attrs) {
+		return attrs != null && attrs.isDirectory();
+	}
+
+	/**
+	 * The file part keeps the size, so spooling resolves the ranges against the same size they have been checked against.
+	 */
+	private Long getFileSize(EncryptedFilePart filePart) throws DavException {
+		try {
+			return filePart.getFileSize();
+		} catch (IOException e) {
+			throw new DavException(DavServletResponse.SC_INTERNAL_SERVER_ERROR, e);
+		}
+	}
+
+	private EncryptedFilePart createFilePart(DavResourceLocator locator, DavSession session, DavServletRequest request, BasicFileAttributes attrs) {
+		return new EncryptedFilePart(this, locator, session, request, lockManager, cryptor, contentLengthCache, cryptoWarningHandler, attrs);
 	}
 
-	private EncryptedFile createFile(DavResourceLocator locator, DavSession session) {
-		return new EncryptedFile(this, locator, session, lockManager, cryptor, cryptoWarningHandler);
+	private EncryptedFile createFile(DavResourceLocator locator, DavSession session, BasicFileAttributes attrs) {
+		return new EncryptedFile(this, locator, session, lockManager, cryptor, contentLengthCache, cryptoWarningHandler, attrs);
 	}
 
-	private EncryptedDir createDirectory(DavResourceLocator locator, DavSession session) {
-		return new EncryptedDir(this, locator, session, lockManager, cryptor);
+	private EncryptedDir createDirectory(DavResourceLocator locator, DavSession session, BasicFileAttributes attrs) {
+		return new EncryptedDir(this, locator, session, lockManager, cryptor, contentLengthCache, attrs);
 	}
 
 	private NonExistingNode createNonExisting(DavResourceLocator locator, DavSession session) {
-		return new NonExistingNode(this, locator, session, lockManager, cryptor);
+		return new NonExistingNode(this, locator, session, lockManager, cryptor, contentLengthCache);
 	}
 
 }
@@ -10,6 +10,7 @@ package org.cryptomator.webdav.jackrabbit;
 
 import java.io.IOException;
 import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -17,15 +18,18 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.jackrabbit.webdav.DavException;
 import org.apache.jackrabbit.webdav.DavResource;
 import org.apache.jackrabbit.webdav.DavResourceFactory;
 import org.apache.jackrabbit.webdav.DavResourceIterator;
-import org.apache.jackrabbit.webdav.DavResourceIteratorImpl;
 import org.apache.jackrabbit.webdav.DavResourceLocator;
 import org.apache.jackrabbit.webdav.DavServletResponse;
 import org.apache.jackrabbit.webdav.DavSession;
@@ -37,7 +41,6 @@ import org.apache.jackrabbit.webdav.property.DefaultDavProperty;
 import org.apache.jackrabbit.webdav.property.ResourceType;
 import org.cryptomator.crypto.Cryptor;
 import org.cryptomator.webdav.exceptions.DavRuntimeException;
-import org.cryptomator.webdav.exceptions.DecryptFailedRuntimeException;
 import org.cryptomator.webdav.exceptions.IORuntimeException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,9 +48,10 @@ import org.slf4j.LoggerFactory;
 class EncryptedDir extends AbstractEncryptedNode {
 
 	private static final Logger LOG = LoggerFactory.getLogger(EncryptedDir.class);
+	private static final int MEMBER_BATCH_SIZE = 256;
 
-	public EncryptedDir(DavResourceFactory factory, DavResourceLocator locator, DavSession session, LockManager lockManager, Cryptor cryptor) {
-		super(factory, locator, session, lockManager, cryptor);
+	public EncryptedDir(DavResourceFactory factory, DavResourceLocator locator, DavSession session, LockManager lockManager, Cryptor cryptor, ContentLengthCache contentLengthCache, BasicFileAttributes attributes) {
+		super(factory, locator, session, lockManager, cryptor, contentLengthCache, attributes);
 	}
 
 	@Override
@@ -87,34 +91,31 @@ class EncryptedDir extends AbstractEncryptedNode {
 			throw new IORuntimeException(e);
 		} finally {
 			IOUtils.closeQuietly(inputContext.getInputStream());
+			contentLengthCache.invalidate(childPath);
 		}
 	}
 
+	/**
+	 * @return Iterator creating members on demand. The directory is listed at once, so no directory handle stays open, if callers stop
+	 *         iterating early. Names are decrypted in batches of {@value #MEMBER_BATCH_SIZE}, so only the locators of one batch need to be
+	 *         kept in memory at any time.
+	 */
 	@Override
 	public DavResourceIterator getMembers() {
 		final Path dir = ResourcePathUtils.getPhysicalPath(this);
-		try {
-			final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dir, cryptor.getPayloadFilesFilter());
-			final List<DavResource> result = new ArrayList<>();
-
+		final List<String> childPaths = new ArrayList<>();
+		try (final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dir, cryptor.getPayloadFilesFilter())) {
 			for (final Path childPath : directoryStream) {
-				try {
-					final DavResourceLocator childLocator = locator.getFactory().createResourceLocator(locator.getPrefix(), locator.getWorkspacePath(), childPath.toString(), false);
-					final DavResource resource = factory.createResource(childLocator, session);
-					result.add(resource);
-				} catch (DecryptFailedRuntimeException e) {
-					LOG.warn("Decryption of resource failed: " + childPath);
-					continue;
-				}
+				childPaths.add(childPath.toString());
 			}
-			return new DavResourceIteratorImpl(result);
+		} catch (DirectoryIteratorException e) {
+			LOG.error("Exception during getMembers.", e);
+			throw new IORuntimeException(e.getCause());
 		} catch (IOException e) {
 			LOG.error("Exception during getMembers.", e);
 			throw new IORuntimeException(e);
-		} catch (DavException e) {
-			LOG.error("Exception during getMembers.", e);
-			throw new DavRuntimeException(e);
 		}
+		return new MemberIterator(childPaths.iterator());
 	}
 
 	@Override
@@ -128,6 +129,12 @@ class EncryptedDir extends AbstractEncryptedNode {
 			throw new DavException(DavServletResponse.SC_FORBIDDEN, e);
 		} catch (IOException e) {
 			throw new IORuntimeException(e);
+		} finally {
+			if (member.isCollection()) {
+				contentLengthCache.invalidateTree(memberPath);
+			} else {
+				contentLengthCache.invalidate(memberPath);
+			}
 		}
 	}
 
@@ -138,19 +145,95 @@ class EncryptedDir extends AbstractEncryptedNode {
 
 	@Override
 	protected void determineProperties() {
-		final Path path = ResourcePathUtils.getPhysicalPath(this);
 		properties.add(new ResourceType(ResourceType.COLLECTION));
 		properties.add(new DefaultDavProperty<Integer>(DavPropertyName.ISCOLLECTION, 1));
-		if (Files.exists(path)) {
+		if (attributes != null) {
+			properties.add(new DefaultDavProperty<String>(DavPropertyName.CREATIONDATE, FileTimeUtils.toRfc1123String(attributes.creationTime())));
+			properties.add(new DefaultDavProperty<String>(DavPropertyName.GETLASTMODIFIED, FileTimeUtils.toRfc1123String(attributes.lastModifiedTime())));
+		}
+	}
+
+	/**
+	 * Lazily decrypts the names of the given paths in batches and creates the corresponding resources. Paths, whose names can't be
+	 * decrypted, are skipped.
+	 */
+	private class MemberIterator implements DavResourceIterator {
+
+		private final Iterator<String> childPaths;
+		private final Queue<DavResourceLocator> childLocators = new ArrayDeque<>(MEMBER_BATCH_SIZE);
+		private DavResource nextMember;
+
+		private MemberIterator(Iterator<String> childPaths) {
+			this.childPaths = childPaths;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (nextMember == null) {
+				nextMember = createNextMember();
+			}
+			return nextMember != null;
+		}
+
+		@Override
+		public DavResource next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final DavResource result = nextMember;
+			nextMember = null;
+			return result;
+		}
+
+		@Override
+		public DavResource nextResource() {
+			return next();
+		}
+
+		/**
+		 * @return <code>-1</code>, as the number of members is unknown until all of them have been created.
+		 */
+		@Override
+		public int size() {
+			return -1;
+		}
+
+		private DavResource createNextMember() {
 			try {
-				final BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
-				properties.add(new DefaultDavProperty<String>(DavPropertyName.CREATIONDATE, FileTimeUtils.toRfc1123String(attrs.creationTime())));
-				properties.add(new DefaultDavProperty<String>(DavPropertyName.GETLASTMODIFIED, FileTimeUtils.toRfc1123String(attrs.lastModifiedTime())));
-			} catch (IOException e) {
-				LOG.error("Error determining metadata " + path.toString(), e);
-				// don't add any further properties
+				if (childLocators.isEmpty()) {
+					decryptNextBatch();
+				}
+				if (childLocators.isEmpty()) {
+					return null;
+				}
+				return factory.createResource(childLocators.remove(), session);
+			} catch (DavException e) {
+				LOG.error("Exception during getMembers.", e);
+				throw new DavRuntimeException(e);
+			}
+		}
+
+		/**
+		 * Decrypts the names of the next paths, until at least one of them could be decrypted or all paths have been processed.
+		 */
+		private void decryptNextBatch() {
+			final DavLocatorFactoryImpl locatorFactory = (DavLocatorFactoryImpl) locator.getFactory();
+			while (childLocators.isEmpty() && childPaths.hasNext()) {
+				final List<String> batch = new ArrayList<>(MEMBER_BATCH_SIZE);
+				while (batch.size() < MEMBER_BATCH_SIZE && childPaths.hasNext()) {
+					batch.add(childPaths.next());
+				}
+				final List<DavResourceLocator> batchLocators = locatorFactory.createResourceLocators(locator.getPrefix(), locator.getWorkspacePath(), batch);
+				for (int i = 0; i < batch.size(); i++) {
+					if (batchLocators.get(i) == null) {
+						LOG.warn("Decryption of resource failed: " + batch.get(i));
+					} else {
+						childLocators.add(batchLocators.get(i));
+					}
+				}
 			}
 		}
+
 	}
 
 	/**
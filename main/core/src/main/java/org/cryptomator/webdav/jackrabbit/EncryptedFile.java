@@ -42,8 +42,8 @@ class EncryptedFile extends AbstractEncryptedNode {
 
 	protected final CryptoWarningHandler cryptoWarningHandler;
 
-	public EncryptedFile(DavResourceFactory factory, DavResourceLocator locator, DavSession session, LockManager lockManager, Cryptor cryptor, CryptoWarningHandler cryptoWarningHandler) {
-		super(factory, locator, session, lockManager, cryptor);
+	public EncryptedFile(DavResourceFactory factory, DavResourceLocator locator, DavSession session, LockManager lockManager, Cryptor cryptor, ContentLengthCache contentLengthCache, CryptoWarningHandler cryptoWarningHandler, BasicFileAttributes attributes) {
+		super(factory, locator, session, lockManager, cryptor, contentLengthCache, attributes);
 		this.cryptoWarningHandler = cryptoWarningHandler;
 	}
 
@@ -70,8 +70,8 @@ class EncryptedFile extends AbstractEncryptedNode {
 	@Override
 	public void spool(OutputContext outputContext) throws IOException {
 		final Path path = ResourcePathUtils.getPhysicalPath(this);
-		if (Files.isRegularFile(path)) {
-			outputContext.setModificationTime(Files.getLastModifiedTime(path).toMillis());
+		if (attributes != null && attributes.isRegularFile()) {
+			outputContext.setModificationTime(attributes.lastModifiedTime().toMillis());
 			outputContext.setProperty(HttpHeader.ACCEPT_RANGES.asString(), HttpHeaderValue.BYTES.asString());
 			try (final SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ)) {
 				final Long contentLength = cryptor.decryptedContentLength(channel);
@@ -93,25 +93,57 @@ class EncryptedFile extends AbstractEncryptedNode {
 
 	@Override
 	protected void determineProperties() {
-		final Path path = ResourcePathUtils.getPhysicalPath(this);
-		if (Files.exists(path)) {
-			try (final SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ)) {
-				final Long contentLength = cryptor.decryptedContentLength(channel);
+		determineAttributeProperties();
+		determineContentLengthProperty();
+	}
+
+	/**
+	 * Only reads the file header, if the content length is requested.
+	 */
+	@Override
+	protected void determineProperty(DavPropertyName name) {
+		if (DavPropertyName.GETCONTENTLENGTH.equals(name)) {
+			determineContentLengthProperty();
+		} else {
+			determineAttributeProperties();
+		}
+	}
+
+	private void determineAttributeProperties() {
+		if (attributes != null && !properties.contains(DavPropertyName.GETLASTMODIFIED)) {
+			properties.add(new DefaultDavProperty<String>(DavPropertyName.CREATIONDATE, FileTimeUtils.toRfc1123String(attributes.creationTime())));
+			properties.add(new DefaultDavProperty<String>(DavPropertyName.GETLASTMODIFIED, FileTimeUtils.toRfc1123String(attributes.lastModifiedTime())));
+			properties.add(new HttpHeaderProperty(HttpHeader.ACCEPT_RANGES.asString(), HttpHeaderValue.BYTES.asString()));
+		}
+	}
+
+	private void determineContentLengthProperty() {
+		if (attributes != null && !properties.contains(DavPropertyName.GETCONTENTLENGTH)) {
+			final Path path = ResourcePathUtils.getPhysicalPath(this);
+			try {
+				final Long contentLength = getContentLength(path, attributes);
 				properties.add(new DefaultDavProperty<Long>(DavPropertyName.GETCONTENTLENGTH, contentLength));
 			} catch (IOException e) {
 				LOG.error("Error reading filesize " + path.toString(), e);
 				throw new IORuntimeException(e);
 			}
+		}
+	}
 
-			try {
-				final BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
-				properties.add(new DefaultDavProperty<String>(DavPropertyName.CREATIONDATE, FileTimeUtils.toRfc1123String(attrs.creationTime())));
-				properties.add(new DefaultDavProperty<String>(DavPropertyName.GETLASTMODIFIED, FileTimeUtils.toRfc1123String(attrs.lastModifiedTime())));
-				properties.add(new HttpHeaderProperty(HttpHeader.ACCEPT_RANGES.asString(), HttpHeaderValue.BYTES.asString()));
-			} catch (IOException e) {
-				LOG.error("Error determining metadata " + path.toString(), e);
-				throw new IORuntimeException(e);
+	/**
+	 * @return The decrypted content length, preferably from the cache, or <code>null</code>, if unknown.
+	 */
+	protected Long getContentLength(Path path, BasicFileAttributes attrs) throws IOException {
+		final Long cachedContentLength = contentLengthCache.get(path, attrs);
+		if (cachedContentLength != null) {
+			return cachedContentLength;
+		}
+		try (final SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ)) {
+			final Long contentLength = cryptor.decryptedContentLength(channel);
+			if (contentLength != null) {
+				contentLengthCache.put(path, attrs, contentLength);
 			}
+			return contentLength;
 		}
 	}
 
@@ -2,18 +2,20 @@ package org.cryptomator.webdav.jackrabbit;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.jackrabbit.webdav.DavResourceFactory;
 import org.apache.jackrabbit.webdav.DavResourceLocator;
@@ -23,15 +25,13 @@ import org.apache.jackrabbit.webdav.io.OutputContext;
 import org.apache.jackrabbit.webdav.lock.LockManager;
 import org.cryptomator.crypto.Cryptor;
 import org.cryptomator.crypto.exceptions.DecryptFailedException;
+import org.cryptomator.crypto.exceptions.MacAuthenticationFailedException;
 import org.eclipse.jetty.http.HttpHeader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-
 /**
- * Delivers only the requested range of bytes from a file.
+ * Delivers only the requested ranges of bytes from a file. Multiple ranges are delivered as multipart/byteranges.
  * 
  * @see {@link https://tools.ietf.org/html/rfc7233#section-4}
  */
@@ -41,7 +41,14 @@ class EncryptedFilePart extends EncryptedFile {
 	private static final String BYTE_UNIT_PREFIX = "bytes=";
 	private static final char RANGE_SET_SEP = ',';
 	private static final char RANGE_SEP = '-';
-	private static final Cache<DavResourceLocator, MacAuthenticationJob> cachedMacAuthenticationJobs = CacheBuilder.newBuilder().expireAfterWrite(10, TimeUnit.MINUTES).build();
+	private static final String CRLF = "\r\n";
+	private static final String MULTIPART_BYTERANGES_CONTENT_TYPE_PREFIX = "multipart/byteranges; boundary=";
+
+	/**
+	 * Range headers with more ranges are ignored and the complete file is delivered instead, so a single request can't make us send a
+	 * part header for every single byte.
+	 */
+	static final int MAX_RANGES = 32;
 
 	/**
 	 * e.g. range -500 (gets the last 500 bytes) -> (-1, 500)
@@ -53,35 +60,56 @@ class EncryptedFilePart extends EncryptedFile {
 	 */
 	private static final Long SUFFIX_BYTE_RANGE_UPPER = Long.MAX_VALUE;
 
-	private final Set<Pair<Long, Long>> requestedContentRanges = new HashSet<Pair<Long, Long>>();
+	private final List<Pair<Long, Long>> requestedContentRanges = new ArrayList<Pair<Long, Long>>();
+
+	/**
+	 * Decrypted size of the file, which the requested ranges are resolved against. Determined once, so checking satisfiability and
+	 * spooling can't disagree.
+	 */
+	private Long fileSize;
 
-	public EncryptedFilePart(DavResourceFactory factory, DavResourceLocator locator, DavSession session, DavServletRequest request, LockManager lockManager, Cryptor cryptor, CryptoWarningHandler cryptoWarningHandler,
-			ExecutorService backgroundTaskExecutor) {
-		super(factory, locator, session, lockManager, cryptor, cryptoWarningHandler);
+	/**
+	 * @throws IllegalArgumentException If the range header is missing, malformed or contains more than {@value #MAX_RANGES} ranges.
+	 */
+	public EncryptedFilePart(DavResourceFactory factory, DavResourceLocator locator, DavSession session, DavServletRequest request, LockManager lockManager, Cryptor cryptor, ContentLengthCache contentLengthCache, CryptoWarningHandler cryptoWarningHandler, BasicFileAttributes attributes) {
+		super(factory, locator, session, lockManager, cryptor, contentLengthCache, cryptoWarningHandler, attributes);
 		final String rangeHeader = request.getHeader(HttpHeader.RANGE.asString());
 		if (rangeHeader == null) {
 			throw new IllegalArgumentException("HTTP request doesn't contain a range header");
 		}
-		determineByteRanges(rangeHeader);
+		requestedContentRanges.addAll(parseByteRanges(rangeHeader));
+	}
 
-		synchronized (cachedMacAuthenticationJobs) {
-			if (cachedMacAuthenticationJobs.getIfPresent(locator) == null) {
-				final MacAuthenticationJob macAuthJob = new MacAuthenticationJob(locator);
-				cachedMacAuthenticationJobs.put(locator, macAuthJob);
-				backgroundTaskExecutor.submit(macAuthJob);
-			}
+	/**
+	 * @return The decrypted size of the file or <code>null</code>, if unknown (e.g. due to a truncated header).
+	 */
+	Long getFileSize() throws IOException {
+		if (fileSize == null) {
+			fileSize = getContentLength(ResourcePathUtils.getPhysicalPath(this), attributes);
 		}
+		return fileSize;
+	}
 
+	/**
+	 * @return <code>true</code>, if at least one of the requested ranges is at least partially within a file of the given size.
+	 */
+	boolean isSatisfiable(long fileSize) {
+		return !getSatisfiableRanges(requestedContentRanges, fileSize).isEmpty();
 	}
 
-	private void determineByteRanges(String rangeHeader) {
+	/**
+	 * @return Requested ranges in the order they appear in the given header. Suffix ranges (e.g. -500) are represented as (-1, 500).
+	 * @throws IllegalArgumentException If the header is malformed or contains more than {@value #MAX_RANGES} ranges.
+	 */
+	static List<Pair<Long, Long>> parseByteRanges(String rangeHeader) {
 		final String byteRangeSet = StringUtils.removeStartIgnoreCase(rangeHeader, BYTE_UNIT_PREFIX);
 		final String[] byteRanges = StringUtils.split(byteRangeSet, RANGE_SET_SEP);
-		if (byteRanges.length == 0) {
+		if (byteRanges.length == 0 || byteRanges.length > MAX_RANGES) {
 			throw new IllegalArgumentException("Invalid range: " + rangeHeader);
 		}
+		final List<Pair<Long, Long>> result = new ArrayList<Pair<Long, Long>>(byteRanges.length);
 		for (final String byteRange : byteRanges) {
-			final String[] bytePos = StringUtils.splitPreserveAllTokens(byteRange, RANGE_SEP);
+			final String[] bytePos = StringUtils.splitPreserveAllTokens(byteRange.trim(), RANGE_SEP);
 			if (bytePos.length != 2 || bytePos[0].isEmpty() && bytePos[1].isEmpty()) {
 				throw new IllegalArgumentException("Invalid range: " + rangeHeader);
 			}
@@ -90,34 +118,42 @@ class EncryptedFilePart extends EncryptedFile {
 			if (lower > upper) {
 				throw new IllegalArgumentException("Invalid range: " + rangeHeader);
 			}
-			requestedContentRanges.add(new ImmutablePair<Long, Long>(lower, upper));
+			result.add(new ImmutablePair<Long, Long>(lower, upper));
 		}
+		return result;
 	}
 
 	/**
-	 * @return One range, that spans all requested ranges.
+	 * @return Requested ranges, which are at least partially within the file, limited to the file size. Overlapping or adjacent ranges
+	 *         are coalesced. Ordered by their first byte.
 	 */
-	private Pair<Long, Long> getUnionRange(Long fileSize) {
+	static List<Pair<Long, Long>> getSatisfiableRanges(List<Pair<Long, Long>> requestedRanges, long fileSize) {
 		final long lastByte = fileSize - 1;
-		final MutablePair<Long, Long> result = new MutablePair<Long, Long>();
-		for (Pair<Long, Long> range : requestedContentRanges) {
+		final List<Pair<Long, Long>> ranges = new ArrayList<Pair<Long, Long>>();
+		for (Pair<Long, Long> range : requestedRanges) {
 			final long left;
 			final long right;
 			if (SUFFIX_BYTE_RANGE_LOWER.equals(range.getLeft())) {
-				left = lastByte - range.getRight();
-				right = lastByte;
-			} else if (SUFFIX_BYTE_RANGE_UPPER.equals(range.getRight())) {
-				left = range.getLeft();
+				left = Math.max(0, fileSize - range.getRight());
 				right = lastByte;
 			} else {
 				left = range.getLeft();
-				right = range.getRight();
+				right = Math.min(range.getRight(), lastByte);
 			}
-			if (result.getLeft() == null || left < result.getLeft()) {
-				result.setLeft(left);
+			if (left <= right) {
+				ranges.add(new ImmutablePair<Long, Long>(left, right));
 			}
-			if (result.getRight() == null || right > result.getRight()) {
-				result.setRight(right);
+		}
+		Collections.sort(ranges);
+
+		final List<Pair<Long, Long>> result = new ArrayList<Pair<Long, Long>>();
+		for (Pair<Long, Long> range : ranges) {
+			final int last = result.size() - 1;
+			if (last >= 0 && range.getLeft() <= result.get(last).getRight() + 1) {
+				final Pair<Long, Long> merged = new ImmutablePair<Long, Long>(result.get(last).getLeft(), Math.max(result.get(last).getRight(), range.getRight()));
+				result.set(last, merged);
+			} else {
+				result.add(range);
 			}
 		}
 		return result;
@@ -126,71 +162,80 @@ class EncryptedFilePart extends EncryptedFile {
 	@Override
 	public void spool(OutputContext outputContext) throws IOException {
 		final Path path = ResourcePathUtils.getPhysicalPath(this);
-		if (Files.isRegularFile(path)) {
-			outputContext.setModificationTime(Files.getLastModifiedTime(path).toMillis());
+		if (attributes != null && attributes.isRegularFile()) {
+			outputContext.setModificationTime(attributes.lastModifiedTime().toMillis());
+			final Long fileSize = getFileSize();
+			if (fileSize == null) {
+				throw new IOException("Unknown content length of " + path.toString());
+			}
 			try (final SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ)) {
-				final Long fileSize = cryptor.decryptedContentLength(channel);
-				final Pair<Long, Long> range = getUnionRange(fileSize);
-				final Long rangeLength = range.getRight() - range.getLeft() + 1;
-				outputContext.setContentLength(rangeLength);
-				outputContext.setProperty(HttpHeader.CONTENT_RANGE.asString(), getContentRangeHeader(range.getLeft(), range.getRight(), fileSize));
-				if (outputContext.hasStream()) {
-					cryptor.decryptRange(channel, outputContext.getOutputStream(), range.getLeft(), rangeLength);
+				final List<Pair<Long, Long>> ranges = getSatisfiableRanges(requestedContentRanges, fileSize);
+				if (ranges.isEmpty()) {
+					outputContext.setContentLength(0);
+					outputContext.setProperty(HttpHeader.CONTENT_RANGE.asString(), getUnsatisfiedContentRangeHeader(fileSize));
+				} else if (ranges.size() == 1) {
+					spoolSingleRange(outputContext, channel, ranges.get(0), fileSize);
+				} else {
+					spoolMultipleRanges(outputContext, channel, ranges, fileSize);
 				}
 			} catch (EOFException e) {
 				if (LOG.isDebugEnabled()) {
 					LOG.debug("Unexpected end of stream during delivery of partial content (client hung up).");
 				}
+			} catch (MacAuthenticationFailedException e) {
+				cryptoWarningHandler.macAuthFailed(getLocator().getResourcePath());
 			} catch (DecryptFailedException e) {
 				throw new IOException("Error decrypting file " + path.toString(), e);
 			}
 		}
 	}
 
-	private String getContentRangeHeader(long firstByte, long lastByte, long completeLength) {
-		return String.format("%d-%d/%d", firstByte, lastByte, completeLength);
+	private void spoolSingleRange(OutputContext outputContext, SeekableByteChannel channel, Pair<Long, Long> range, long fileSize) throws IOException, DecryptFailedException {
+		final long rangeLength = range.getRight() - range.getLeft() + 1;
+		outputContext.setContentLength(rangeLength);
+		outputContext.setProperty(HttpHeader.CONTENT_RANGE.asString(), getContentRangeHeader(range.getLeft(), range.getRight(), fileSize));
+		if (outputContext.hasStream()) {
+			cryptor.decryptRange(channel, outputContext.getOutputStream(), range.getLeft(), rangeLength);
+		}
 	}
 
-	private class MacAuthenticationJob implements Runnable {
-
-		private final DavResourceLocator locator;
-
-		public MacAuthenticationJob(final DavResourceLocator locator) {
-			if (locator == null) {
-				throw new IllegalArgumentException("locator must not be null.");
-			}
-			this.locator = locator;
+	/**
+	 * Sends each range as a separate part of a multipart/byteranges body, so only the chunks containing requested bytes get decrypted.
+	 * 
+	 * @see {@link https://tools.ietf.org/html/rfc7233#appendix-A}
+	 */
+	void spoolMultipleRanges(OutputContext outputContext, SeekableByteChannel channel, List<Pair<Long, Long>> ranges, long fileSize) throws IOException, DecryptFailedException {
+		final String boundary = UUID.randomUUID().toString();
+		final List<byte[]> partHeaders = new ArrayList<byte[]>(ranges.size());
+		final byte[] closingDelimiter = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+		long contentLength = closingDelimiter.length;
+		for (Pair<Long, Long> range : ranges) {
+			final String partHeader = CRLF + "--" + boundary + CRLF //
+					+ HttpHeader.CONTENT_RANGE.asString() + ": " + getContentRangeHeader(range.getLeft(), range.getRight(), fileSize) + CRLF //
+					+ CRLF;
+			final byte[] partHeaderBytes = partHeader.getBytes(StandardCharsets.US_ASCII);
+			partHeaders.add(partHeaderBytes);
+			contentLength += partHeaderBytes.length + range.getRight() - range.getLeft() + 1;
 		}
-
-		@Override
-		public void run() {
-			final Path path = ResourcePathUtils.getPhysicalPath(locator);
-			if (Files.isRegularFile(path) && Files.isReadable(path)) {
-				try (final SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ)) {
-					final boolean authentic = cryptor.isAuthentic(channel);
-					if (!authentic) {
-						cryptoWarningHandler.macAuthFailed(locator.getResourcePath());
-					}
-				} catch (IOException e) {
-					LOG.error("IOException during MAC verification of " + path.toString(), e);
-				}
+		outputContext.setContentType(MULTIPART_BYTERANGES_CONTENT_TYPE_PREFIX + boundary);
+		outputContext.setContentLength(contentLength);
+		if (outputContext.hasStream()) {
+			final OutputStream out = outputContext.getOutputStream();
+			for (int i = 0; i < ranges.size(); i++) {
+				final Pair<Long, Long> range = ranges.get(i);
+				out.write(partHeaders.get(i));
+				cryptor.decryptRange(channel, out, range.getLeft(), range.getRight() - range.getLeft() + 1);
 			}
+			out.write(closingDelimiter);
 		}
+	}
 
-		@Override
-		public int hashCode() {
-			return locator.hashCode();
-		}
+	private static String getContentRangeHeader(long firstByte, long lastByte, long completeLength) {
+		return String.format("bytes %d-%d/%d", firstByte, lastByte, completeLength);
+	}
 
-		@Override
-		public boolean equals(Object obj) {
-			if (obj instanceof MacAuthenticationJob) {
-				final MacAuthenticationJob other = (MacAuthenticationJob) obj;
-				return this.locator.equals(other.locator);
-			} else {
-				return false;
-			}
-		}
+	static String getUnsatisfiedContentRangeHeader(long completeLength) {
+		return String.format("bytes */%d", completeLength);
 	}
 
 }
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.webdav.jackrabbit;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map;
+
+import org.cryptomator.crypto.Cryptor;
+
+/**
+ * Persistent index of encrypted file names and their cleartext counterparts, so names don't need to be decrypted again after the vault
+ * has been unlocked.<br/>
+ * The index is stored in the vault root, encrypted just like any other file. As the encrypted form of a name never changes, entries never
+ * get outdated and new mappings only need to be added.
+ * 
+ * @see PersistentLruMap
+ */
+class NameIndex {
+
+	static final String INDEX_FILENAME = "names.cryptomator";
+	private static final int MAX_INDEXED_NAME_LENGTH = 4096;
+
+	private final PersistentLruMap<String, String> entries; // <encryptedName, cleartextName>
+
+	/**
+	 * Starts loading the index in the background.
+	 * 
+	 * @param vaultRoot Directory containing the index file.
+	 * @param capacity Maximum number of names kept in the index. If exceeded, the least recently used names get removed.
+	 */
+	NameIndex(Path vaultRoot, Cryptor cryptor, int capacity) {
+		this.entries = new PersistentLruMap<>(cryptor, capacity, vaultRoot.resolve(INDEX_FILENAME), new NameSerializer());
+	}
+
+	/**
+	 * @return The cleartext name of the given encrypted name or <code>null</code>, if not indexed (yet).
+	 */
+	public String get(String encryptedName) {
+		return entries.get(encryptedName);
+	}
+
+	public void put(String encryptedName, String cleartextName) {
+		if (encryptedName.length() > MAX_INDEXED_NAME_LENGTH || cleartextName.length() > MAX_INDEXED_NAME_LENGTH) {
+			return;
+		}
+		entries.put(encryptedName, cleartextName);
+	}
+
+	/**
+	 * Saves the index and waits for it being written. Must be called before the master key gets destroyed.
+	 */
+	public void close() {
+		entries.close();
+	}
+
+	private static class NameSerializer implements PersistentLruMap.EntrySerializer<String, String> {
+
+		@Override
+		public void write(DataOutput out, String encryptedName, String cleartextName) throws IOException {
+			out.writeUTF(encryptedName);
+			out.writeUTF(cleartextName);
+		}
+
+		@Override
+		public Map.Entry<String, String> read(DataInput in) throws IOException {
+			final String encryptedName = in.readUTF();
+			final String cleartextName = in.readUTF();
+			return new SimpleImmutableEntry<>(encryptedName, cleartextName);
+		}
+
+	}
+
+}
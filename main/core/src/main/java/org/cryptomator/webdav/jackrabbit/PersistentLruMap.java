@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.webdav.jackrabbit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.apache.commons.collections4.map.LRUMap;
+import org.cryptomator.crypto.Cryptor;
+import org.cryptomator.crypto.SensitiveDataSwipeListener;
+import org.cryptomator.crypto.exceptions.DecryptFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread-safe map with limited capacity, which removes the least recently used entries first. It gets cleared, when sensitive data gets
+ * swiped.<br/>
+ * Optionally the map is persisted to a file, encrypted just like any other file of the vault. In this case it is loaded in the background,
+ * while lookups of entries not yet loaded simply miss. It gets saved in the background after {@value #SAVE_THRESHOLD} changes and when it
+ * is {@link #close() closed}.
+ */
+class PersistentLruMap<K, V> implements SensitiveDataSwipeListener {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PersistentLruMap.class);
+	private static final String TMP_FILE_EXT = ".tmp";
+	private static final int FORMAT_VERSION = 1;
+	private static final int SAVE_THRESHOLD = 4096;
+	private static final int CLOSE_TIMEOUT_SECONDS = 30;
+
+	private final Cryptor cryptor;
+	private final Path file;
+	private final EntrySerializer<K, V> serializer;
+	private final Map<K, V> entries;
+	private final ExecutorService executor;
+	private int unsavedChanges;
+	private boolean savePending;
+	private boolean closing;
+	private boolean swiped;
+
+	/**
+	 * Creates a map, which is not persisted.
+	 */
+	PersistentLruMap(Cryptor cryptor, int capacity) {
+		this.cryptor = cryptor;
+		this.file = null;
+		this.serializer = null;
+		this.entries = new LRUMap<>(capacity);
+		this.executor = null;
+		cryptor.addSensitiveDataSwipeListener(this);
+	}
+
+	/**
+	 * Creates a persistent map and starts loading it from the given file in the background.
+	 */
+	PersistentLruMap(Cryptor cryptor, int capacity, Path file, EntrySerializer<K, V> serializer) {
+		this.cryptor = cryptor;
+		this.file = file;
+		this.serializer = serializer;
+		this.entries = new LRUMap<>(capacity);
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			final Thread thread = new Thread(r, "Persistence of " + file);
+			thread.setDaemon(true);
+			return thread;
+		});
+		cryptor.addSensitiveDataSwipeListener(this);
+		executor.execute(this::load);
+	}
+
+	public V get(K key) {
+		synchronized (entries) {
+			return entries.get(key);
+		}
+	}
+
+	public void put(K key, V value) {
+		synchronized (entries) {
+			if (swiped || Objects.equals(entries.put(key, value), value)) {
+				return;
+			}
+			changed();
+		}
+	}
+
+	/**
+	 * @return The removed value or <code>null</code>, if there was no entry for the given key.
+	 */
+	public V remove(K key) {
+		synchronized (entries) {
+			final V removed = entries.remove(key);
+			if (removed != null) {
+				changed();
+			}
+			return removed;
+		}
+	}
+
+	/**
+	 * Removes all entries, whose keys match the given predicate. Visits every entry.
+	 */
+	public void removeIf(Predicate<? super K> predicate) {
+		synchronized (entries) {
+			for (Iterator<K> it = entries.keySet().iterator(); it.hasNext();) {
+				if (predicate.test(it.next())) {
+					it.remove();
+					changed();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Moves the values of all entries, for which the given function returns a new key, to this key. Visits every entry.
+	 */
+	public void rekey(Function<? super K, ? extends K> newKeys) {
+		synchronized (entries) {
+			final Map<K, V> moved = new HashMap<>();
+			for (Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator(); it.hasNext();) {
+				final Map.Entry<K, V> entry = it.next();
+				final K newKey = newKeys.apply(entry.getKey());
+				if (newKey != null) {
+					moved.put(newKey, entry.getValue());
+					it.remove();
+					changed();
+				}
+			}
+			entries.putAll(moved);
+		}
+	}
+
+	/**
+	 * Saves a persistent map and waits for it being written. Must be called before the master key gets destroyed. Afterwards the map is
+	 * empty and stays empty.
+	 */
+	public void close() {
+		synchronized (entries) {
+			if (closing) {
+				return;
+			}
+			// no more saves must be scheduled, once the executor is shut down:
+			closing = true;
+		}
+		if (executor != null) {
+			executor.execute(this::save);
+			executor.shutdown();
+			try {
+				if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+					LOG.warn("Timeout while saving {}.", file);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		cryptor.removeSensitiveDataSwipeListener(this);
+		swipeSensitiveData();
+	}
+
+	@Override
+	public void swipeSensitiveData() {
+		synchronized (entries) {
+			swiped = true;
+			entries.clear();
+			unsavedChanges = 0;
+		}
+	}
+
+	/**
+	 * Schedules saving a persistent map after {@value #SAVE_THRESHOLD} changes. Must be called while holding the lock on {@link #entries}.
+	 */
+	private void changed() {
+		if (executor != null && ++unsavedChanges >= SAVE_THRESHOLD && !savePending && !closing) {
+			savePending = true;
+			executor.execute(this::save);
+		}
+	}
+
+	private void load() {
+		if (!Files.isRegularFile(file)) {
+			return;
+		}
+		final ByteArrayOutputStream plaintext = new ByteArrayOutputStream();
+		try (final SeekableByteChannel channel = Files.newByteChannel(file, StandardOpenOption.READ)) {
+			cryptor.decryptFile(channel, plaintext);
+		} catch (IOException | DecryptFailedException e) {
+			LOG.warn("Could not decrypt " + file + ". Starting with an empty map.", e);
+			return;
+		}
+
+		final Map<K, V> loadedEntries = new LinkedHashMap<>();
+		try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(plaintext.toByteArray()))) {
+			final int version = in.readInt();
+			if (version != FORMAT_VERSION) {
+				LOG.warn("Unsupported version {} of {}. Starting with an empty map.", version, file);
+				return;
+			}
+			final int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				final Map.Entry<K, V> entry = serializer.read(in);
+				loadedEntries.put(entry.getKey(), entry.getValue());
+			}
+		} catch (IOException e) {
+			LOG.warn("Corrupt " + file + ". Starting with an empty map.", e);
+			return;
+		}
+
+		synchronized (entries) {
+			if (swiped) {
+				return;
+			}
+			// don't let loaded entries replace more recently used ones:
+			for (final Map.Entry<K, V> entry : loadedEntries.entrySet()) {
+				if (!entries.containsKey(entry.getKey())) {
+					entries.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		LOG.debug("Loaded {} entries from {}.", loadedEntries.size(), file);
+	}
+
+	private void save() {
+		final Map<K, V> snapshot;
+		synchronized (entries) {
+			savePending = false;
+			if (swiped || unsavedChanges == 0) {
+				return;
+			}
+			// least recently used entries first, so they get loaded first:
+			snapshot = new LinkedHashMap<>(entries);
+			unsavedChanges = 0;
+		}
+
+		final Path tmpFile = file.resolveSibling(file.getFileName() + TMP_FILE_EXT);
+		try {
+			final ByteArrayOutputStream plaintext = new ByteArrayOutputStream();
+			try (final DataOutputStream out = new DataOutputStream(plaintext)) {
+				out.writeInt(FORMAT_VERSION);
+				out.writeInt(snapshot.size());
+				for (final Map.Entry<K, V> entry : snapshot.entrySet()) {
+					serializer.write(out, entry.getKey(), entry.getValue());
+				}
+			}
+			try (final SeekableByteChannel channel = Files.newByteChannel(tmpFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				cryptor.encryptFile(new ByteArrayInputStream(plaintext.toByteArray()), channel);
+			}
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			LOG.debug("Saved {} entries to {}.", snapshot.size(), file);
+		} catch (IOException e) {
+			LOG.warn("Could not save " + file + ".", e);
+		}
+	}
+
+	/**
+	 * Writes and reads single entries of a persistent map.
+	 */
+	interface EntrySerializer<K, V> {
+
+		void write(DataOutput out, K key, V value) throws IOException;
+
+		Map.Entry<K, V> read(DataInput in) throws IOException;
+
+	}
+
+}
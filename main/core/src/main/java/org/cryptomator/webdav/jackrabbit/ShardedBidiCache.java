@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.webdav.jackrabbit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe bidirectional cache for bijective mappings, such as cleartext and ciphertext paths.<br/>
+ * Both directions are kept in separate maps, which are split into {@value #NUM_SHARDS} shards each. Each shard is locked on its own and
+ * evicts its least recently used entry, when exceeding its share of the capacity. As both directions are evicted independently, a mapping
+ * may still be cached in one direction after it got evicted from the other one.
+ */
+final class ShardedBidiCache<K, V> {
+
+	private static final int NUM_SHARDS = 16;
+
+	private final Shards<K, V> forward;
+	private final Shards<V, K> reverse;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param capacity Maximum number of cached mappings.
+	 */
+	ShardedBidiCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive.");
+		}
+		final int shardCapacity = Math.max(1, capacity / NUM_SHARDS);
+		this.forward = new Shards<>(shardCapacity, evictions);
+		this.reverse = new Shards<>(shardCapacity, evictions);
+	}
+
+	/**
+	 * @return The value mapped to the given key or <code>null</code>, if not cached.
+	 */
+	public V get(K key) {
+		return count(forward.get(key));
+	}
+
+	/**
+	 * @return The key mapped to the given value or <code>null</code>, if not cached.
+	 */
+	public K getKey(V value) {
+		return count(reverse.get(value));
+	}
+
+	public void put(K key, V value) {
+		forward.put(key, value);
+		reverse.put(value, key);
+	}
+
+	public void clear() {
+		forward.clear();
+		reverse.clear();
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return Number of entries evicted from either direction.
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("hits: %d, misses: %d, evictions: %d", getHitCount(), getMissCount(), getEvictionCount());
+	}
+
+	private <T> T count(T cached) {
+		if (cached == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return cached;
+	}
+
+	private static class Shards<A, B> {
+
+		private final LruMap<A, B>[] shards;
+
+		@SuppressWarnings("unchecked")
+		private Shards(int shardCapacity, LongAdder evictions) {
+			this.shards = new LruMap[NUM_SHARDS];
+			for (int i = 0; i < NUM_SHARDS; i++) {
+				shards[i] = new LruMap<>(shardCapacity, evictions);
+			}
+		}
+
+		private LruMap<A, B> shard(A key) {
+			final int h = (key == null) ? 0 : key.hashCode();
+			return shards[(h ^ (h >>> 16)) & (NUM_SHARDS - 1)];
+		}
+
+		private B get(A key) {
+			final LruMap<A, B> shard = shard(key);
+			synchronized (shard) {
+				return shard.get(key);
+			}
+		}
+
+		private void put(A key, B value) {
+			final LruMap<A, B> shard = shard(key);
+			synchronized (shard) {
+				shard.put(key, value);
+			}
+		}
+
+		private void clear() {
+			for (final LruMap<A, B> shard : shards) {
+				synchronized (shard) {
+					shard.clear();
+				}
+			}
+		}
+
+	}
+
+	private static class LruMap<A, B> extends LinkedHashMap<A, B> {
+
+		private static final long serialVersionUID = -3384546407306658736L;
+		private final int capacity;
+		private final LongAdder evictions;
+
+		private LruMap(int capacity, LongAdder evictions) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<A, B> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			} else {
+				return false;
+			}
+		}
+
+	}
+
+}
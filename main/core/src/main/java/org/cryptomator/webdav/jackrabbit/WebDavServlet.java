@@ -8,14 +8,14 @@
  ******************************************************************************/
 package org.cryptomator.webdav.jackrabbit;
 
+import java.nio.file.FileSystems;
 import java.util.Collection;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.jackrabbit.webdav.DavLocatorFactory;
 import org.apache.jackrabbit.webdav.DavResource;
 import org.apache.jackrabbit.webdav.DavResourceFactory;
@@ -28,12 +28,16 @@ public class WebDavServlet extends AbstractWebdavServlet {
 
 	private static final long serialVersionUID = 7965170007048673022L;
 	public static final String CFG_FS_ROOT = "cfg.fs.root";
+	public static final String CFG_NAME_CACHE_CAPACITY = "cfg.name.cache.capacity";
+	public static final String CFG_NAME_INDEX_CAPACITY = "cfg.name.index.capacity";
+	public static final String CFG_PERSIST_CONTENT_LENGTHS = "cfg.persist.content.lengths";
 	private DavSessionProvider davSessionProvider;
 	private DavLocatorFactory davLocatorFactory;
 	private DavResourceFactory davResourceFactory;
 	private final Cryptor cryptor;
 	private final CryptoWarningHandler cryptoWarningHandler;
-	private ExecutorService backgroundTaskExecutor;
+	private NameIndex nameIndex;
+	private ContentLengthCache contentLengthCache;
 
 	public WebDavServlet(final Cryptor cryptor, final Collection<String> failingMacCollection) {
 		super();
@@ -45,23 +49,23 @@ public class WebDavServlet extends AbstractWebdavServlet {
 	public void init(ServletConfig config) throws ServletException {
 		super.init(config);
 		final String fsRoot = config.getInitParameter(CFG_FS_ROOT);
-		backgroundTaskExecutor = Executors.newCachedThreadPool();
+		final String nameCacheCapacity = config.getInitParameter(CFG_NAME_CACHE_CAPACITY);
+		final int nameIndexCapacity = NumberUtils.toInt(config.getInitParameter(CFG_NAME_INDEX_CAPACITY), 0);
+		nameIndex = (nameIndexCapacity > 0) ? new NameIndex(FileSystems.getDefault().getPath(fsRoot), cryptor, nameIndexCapacity) : null;
 		davSessionProvider = new DavSessionProviderImpl();
-		davLocatorFactory = new DavLocatorFactoryImpl(fsRoot, cryptor);
-		davResourceFactory = new DavResourceFactoryImpl(cryptor, cryptoWarningHandler, backgroundTaskExecutor);
+		davLocatorFactory = new DavLocatorFactoryImpl(fsRoot, cryptor, NumberUtils.toInt(nameCacheCapacity, DavLocatorFactoryImpl.DEFAULT_NAME_CACHE_CAPACITY), nameIndex);
+		final boolean persistContentLengths = BooleanUtils.toBoolean(config.getInitParameter(CFG_PERSIST_CONTENT_LENGTHS));
+		contentLengthCache = persistContentLengths ? new ContentLengthCache(cryptor, FileSystems.getDefault().getPath(fsRoot)) : new ContentLengthCache(cryptor);
+		davResourceFactory = new DavResourceFactoryImpl(cryptor, cryptoWarningHandler, contentLengthCache);
 	}
 
 	@Override
 	public void destroy() {
-		backgroundTaskExecutor.shutdown();
-		try {
-			final boolean tasksFinished = backgroundTaskExecutor.awaitTermination(10, TimeUnit.SECONDS);
-			if (!tasksFinished) {
-				backgroundTaskExecutor.shutdownNow();
-			}
-		} catch (InterruptedException e) {
-			backgroundTaskExecutor.shutdownNow();
-			Thread.currentThread().interrupt();
+		if (nameIndex != null) {
+			nameIndex.close();
+		}
+		if (contentLengthCache != null) {
+			contentLengthCache.close();
 		}
 		super.destroy();
 	}
@@ -0,0 +1,116 @@
+package org.cryptomator.webdav.jackrabbit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.jackrabbit.webdav.DavServletRequest;
+import org.apache.jackrabbit.webdav.io.OutputContext;
+import org.cryptomator.crypto.Cryptor;
+import org.eclipse.jetty.http.HttpHeader;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EncryptedFilePartTest {
+
+	@Test
+	public void testSatisfiableRangesAreLimitedToFileSize() {
+		final List<Pair<Long, Long>> requested = EncryptedFilePart.parseByteRanges("bytes=90-200");
+		Assert.assertEquals(Arrays.asList(range(90, 99)), EncryptedFilePart.getSatisfiableRanges(requested, 100));
+	}
+
+	@Test
+	public void testSatisfiableSuffixAndOpenRanges() {
+		final List<Pair<Long, Long>> requested = EncryptedFilePart.parseByteRanges("bytes=-10,50-");
+		Assert.assertEquals(Arrays.asList(range(50, 99)), EncryptedFilePart.getSatisfiableRanges(requested, 100));
+		final List<Pair<Long, Long>> suffix = EncryptedFilePart.parseByteRanges("bytes=-500");
+		Assert.assertEquals(Arrays.asList(range(0, 99)), EncryptedFilePart.getSatisfiableRanges(suffix, 100));
+	}
+
+	@Test
+	public void testOverlappingAndAdjacentRangesAreMerged() {
+		final List<Pair<Long, Long>> requested = EncryptedFilePart.parseByteRanges("bytes=40-49, 0-9,5-19,20-29");
+		Assert.assertEquals(Arrays.asList(range(0, 29), range(40, 49)), EncryptedFilePart.getSatisfiableRanges(requested, 100));
+	}
+
+	@Test
+	public void testUnsatisfiableRanges() {
+		final List<Pair<Long, Long>> requested = EncryptedFilePart.parseByteRanges("bytes=100-199,200-");
+		Assert.assertEquals(Collections.emptyList(), EncryptedFilePart.getSatisfiableRanges(requested, 100));
+		Assert.assertEquals(Collections.emptyList(), EncryptedFilePart.getSatisfiableRanges(EncryptedFilePart.parseByteRanges("bytes=-1"), 0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyRanges() {
+		final List<String> ranges = new ArrayList<>();
+		for (int i = 0; i <= EncryptedFilePart.MAX_RANGES; i++) {
+			ranges.add(i + "-" + i);
+		}
+		EncryptedFilePart.parseByteRanges("bytes=" + StringUtils.join(ranges, ','));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMalformedRange() {
+		EncryptedFilePart.parseByteRanges("bytes=10-5");
+	}
+
+	@Test
+	public void testMultipartContentLengthMatchesBody() throws Exception {
+		// decrypts each range to zeros:
+		final Cryptor cryptor = proxy(Cryptor.class, (p, method, args) -> {
+			if ("decryptRange".equals(method.getName())) {
+				final OutputStream out = (OutputStream) args[1];
+				final long length = (Long) args[3];
+				out.write(new byte[(int) length]);
+				return length;
+			}
+			return null;
+		});
+		final DavServletRequest request = proxy(DavServletRequest.class, (p, method, args) -> {
+			if ("getHeader".equals(method.getName()) && HttpHeader.RANGE.asString().equals(args[0])) {
+				return "bytes=0-9,1000-1999,-1";
+			}
+			return null;
+		});
+		final EncryptedFilePart filePart = new EncryptedFilePart(null, null, null, request, null, cryptor, new ContentLengthCache(cryptor), null, null);
+
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		final long[] contentLength = {-1};
+		final OutputContext outputContext = proxy(OutputContext.class, (p, method, args) -> {
+			switch (method.getName()) {
+			case "hasStream":
+				return true;
+			case "getOutputStream":
+				return body;
+			case "setContentLength":
+				contentLength[0] = (Long) args[0];
+				return null;
+			default:
+				return null;
+			}
+		});
+		final List<Pair<Long, Long>> ranges = EncryptedFilePart.getSatisfiableRanges(EncryptedFilePart.parseByteRanges("bytes=0-9,1000-1999,-1"), 10000);
+		filePart.spoolMultipleRanges(outputContext, null, ranges, 10000);
+
+		Assert.assertEquals(body.size(), contentLength[0]);
+		Assert.assertTrue(body.toString("US-ASCII").contains("Content-Range: bytes 9999-9999/10000"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+	}
+
+	private static Pair<Long, Long> range(long first, long last) {
+		return new ImmutablePair<Long, Long>(first, last);
+	}
+
+}
@@ -8,52 +8,62 @@
  ******************************************************************************/
 package org.cryptomator.crypto.aes256;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream.Filter;
 import java.nio.file.Path;
-import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.CipherInputStream;
-import javax.crypto.CipherOutputStream;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.Mac;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
-import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.SecretKeySpec;
 import javax.security.auth.DestroyFailedException;
 import javax.security.auth.Destroyable;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.bouncycastle.crypto.generators.SCrypt;
 import org.cryptomator.crypto.AbstractCryptor;
 import org.cryptomator.crypto.CryptorIOSupport;
 import org.cryptomator.crypto.exceptions.DecryptFailedException;
 import org.cryptomator.crypto.exceptions.MacAuthenticationFailedException;
+import org.cryptomator.crypto.exceptions.StorageCryptingException;
 import org.cryptomator.crypto.exceptions.UnsupportedKeyLengthException;
+import org.cryptomator.crypto.exceptions.UnsupportedVaultException;
 import org.cryptomator.crypto.exceptions.WrongPasswordException;
-import org.cryptomator.crypto.io.SeekableByteChannelInputStream;
-import org.cryptomator.crypto.io.SeekableByteChannelOutputStream;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicConfiguration, FileNamingConventions {
@@ -64,6 +74,33 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 	 */
 	private static final int AES_KEY_LENGTH_IN_BITS;
 
+	/**
+	 * Pool on which content chunks are en- and decrypted, so large files get processed by all available cores. Chunk tasks are awaited by
+	 * the threads submitting them, so they get their own daemon threads instead of blocking workers of the common pool.
+	 */
+	private static final ExecutorService CHUNK_CRYPTO_EXECUTOR = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+		final Thread thread = new Thread(r, "Chunk crypto");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Pool on which the lanes of the key derivation function are computed in parallel.
+	 */
+	private static final ForkJoinPool KDF_EXECUTOR = ForkJoinPool.commonPool();
+
+	/**
+	 * Maximum number of chunks per file being en- or decrypted concurrently. Limits memory consumption, if writing is slower than en- or
+	 * decryption.
+	 */
+	private static final int MAX_CHUNKS_IN_FLIGHT = 2 * Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Maximum number of chunk tasks submitted to the {@link #CHUNK_CRYPTO_EXECUTOR} by all files together. Many concurrent requests (e.g.
+	 * a client seeking through a video) wait for a permit instead of queueing an unbounded number of chunks.
+	 */
+	private static final Semaphore CHUNK_TASK_PERMITS = new Semaphore(2 * MAX_CHUNKS_IN_FLIGHT, true);
+
 	/**
 	 * PRNG for cryptographically secure random numbers. Defaults to SHA1-based number generator.
 	 * 
@@ -76,6 +113,11 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 	 */
 	private final ObjectMapper objectMapper = new ObjectMapper();
 
+	/**
+	 * Cached metadata of files with long names.
+	 */
+	private final LongFilenameMetadataStore longFilenameMetadataStore = new LongFilenameMetadataStore();
+
 	/**
 	 * The decrypted master key. Its lifecycle starts with the construction of an Aes256Cryptor instance or
 	 * {@link #decryptMasterKey(InputStream, CharSequence)}. Its lifecycle ends with {@link #swipeSensitiveData()}.
@@ -87,6 +129,17 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 	 */
 	private SecretKey hMacMasterKey;
 
+	/**
+	 * Cipher and Mac instances bound to the current master keys. Replaced whenever the keys change.
+	 */
+	private volatile ThreadLocalPrimitives primitives;
+
+	/**
+	 * Parameters used when encrypting the master key. Those of the key file, if the master key has been decrypted, unless calibrated to
+	 * stronger ones afterwards.
+	 */
+	private volatile ScryptParameters scryptParameters = ScryptParameters.DEFAULT;
+
 	static {
 		try {
 			final int maxKeyLength = Cipher.getMaxAllowedKeyLength(AES_KEY_ALGORITHM);
@@ -108,6 +161,7 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 			this.primaryMasterKey = new SecretKeySpec(bytes, AES_KEY_ALGORITHM);
 			securePrng.nextBytes(bytes);
 			this.hMacMasterKey = new SecretKeySpec(bytes, HMAC_KEY_ALGORITHM);
+			this.primitives = new ThreadLocalPrimitives(primaryMasterKey, hMacMasterKey);
 		} catch (NoSuchAlgorithmException e) {
 			throw new IllegalStateException("PRNG algorithm should exist.", e);
 		} finally {
@@ -121,29 +175,43 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 	@Override
 	public void encryptMasterKey(OutputStream out, CharSequence password) throws IOException {
 		try {
-			// derive key:
-			final byte[] kekSalt = randomData(SCRYPT_SALT_LENGTH);
-			final SecretKey kek = scrypt(password, kekSalt, SCRYPT_COST_PARAM, SCRYPT_BLOCK_SIZE, AES_KEY_LENGTH_IN_BITS);
-
-			// encrypt:
-			final Cipher encCipher = aesKeyWrapCipher(kek, Cipher.WRAP_MODE);
-			byte[] wrappedPrimaryKey = encCipher.wrap(primaryMasterKey);
-			byte[] wrappedSecondaryKey = encCipher.wrap(hMacMasterKey);
-
-			// save encrypted masterkey:
-			final KeyFile keyfile = new KeyFile();
-			keyfile.setScryptSalt(kekSalt);
-			keyfile.setScryptCostParam(SCRYPT_COST_PARAM);
-			keyfile.setScryptBlockSize(SCRYPT_BLOCK_SIZE);
-			keyfile.setKeyLength(AES_KEY_LENGTH_IN_BITS);
-			keyfile.setPrimaryMasterKey(wrappedPrimaryKey);
-			keyfile.setHMacMasterKey(wrappedSecondaryKey);
-			objectMapper.writeValue(out, keyfile);
-		} catch (InvalidKeyException | IllegalBlockSizeException ex) {
-			throw new IllegalStateException("Invalid hard coded configuration.", ex);
+			awaitKeyDerivation(encryptMasterKeyAsync(out, password));
+		} catch (StorageCryptingException e) {
+			throw new IllegalStateException("Encryption doesn't fail due to crypting exceptions.", e);
 		}
 	}
 
+	@Override
+	public CompletableFuture<Void> encryptMasterKeyAsync(OutputStream out, CharSequence password) {
+		// derive key:
+		final byte[] kekSalt = randomData(SCRYPT_SALT_LENGTH);
+		final ScryptParameters params = scryptParameters;
+		final CompletableFuture<SecretKey> kek = scrypt(password, kekSalt, params.getCostParam(), params.getBlockSize(), params.getParallelization(), AES_KEY_LENGTH_IN_BITS);
+
+		return whenKeyDerived(kek, key -> {
+			try {
+				// encrypt:
+				final Cipher encCipher = aesKeyWrapCipher(key, Cipher.WRAP_MODE);
+				byte[] wrappedPrimaryKey = encCipher.wrap(primaryMasterKey);
+				byte[] wrappedSecondaryKey = encCipher.wrap(hMacMasterKey);
+
+				// save encrypted masterkey:
+				final KeyFile keyfile = new KeyFile();
+				keyfile.setVersion(CURRENT_VAULT_VERSION);
+				keyfile.setScryptSalt(kekSalt);
+				keyfile.setScryptCostParam(params.getCostParam());
+				keyfile.setScryptBlockSize(params.getBlockSize());
+				keyfile.setScryptParallelization(params.getParallelization());
+				keyfile.setKeyLength(AES_KEY_LENGTH_IN_BITS);
+				keyfile.setPrimaryMasterKey(wrappedPrimaryKey);
+				keyfile.setHMacMasterKey(wrappedSecondaryKey);
+				objectMapper.writeValue(out, keyfile);
+			} catch (InvalidKeyException | IllegalBlockSizeException ex) {
+				throw new IllegalStateException("Invalid hard coded configuration.", ex);
+			}
+		});
+	}
+
 	/**
 	 * Reads the encrypted masterkey from the given input stream and decrypts it with the given password.
 	 * 
@@ -152,12 +220,31 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 	 *             password. In this case a DecryptFailedException will be thrown.
 	 * @throws UnsupportedKeyLengthException If the masterkey has been encrypted with a higher key length than supported by the system. In
 	 *             this case Java JCE needs to be installed.
+	 * @throws UnsupportedVaultException If the vault has been created with a different version, whose file format is incompatible.
 	 */
 	@Override
 	public void decryptMasterKey(InputStream in, CharSequence password) throws DecryptFailedException, WrongPasswordException, UnsupportedKeyLengthException, IOException {
+		try {
+			awaitKeyDerivation(decryptMasterKeyAsync(in, password));
+		} catch (DecryptFailedException | WrongPasswordException | UnsupportedKeyLengthException e) {
+			throw e;
+		} catch (StorageCryptingException e) {
+			throw new IllegalStateException("Unexpected exception type.", e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> decryptMasterKeyAsync(InputStream in, CharSequence password) {
+		final CompletableFuture<SecretKey> kek;
+		final KeyFile keyfile;
 		try {
 			// load encrypted masterkey:
-			final KeyFile keyfile = objectMapper.readValue(in, KeyFile.class);
+			keyfile = objectMapper.readValue(in, KeyFile.class);
+
+			// check, whether the vault format is supported:
+			if (keyfile.getVersion() != CURRENT_VAULT_VERSION) {
+				throw new UnsupportedVaultException(keyfile.getVersion(), CURRENT_VAULT_VERSION);
+			}
 
 			// check, whether the key length is supported:
 			final int maxKeyLen = Cipher.getMaxAllowedKeyLength(AES_KEY_ALGORITHM);
@@ -166,30 +253,119 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 			}
 
 			// derive key:
-			final SecretKey kek = scrypt(password, keyfile.getScryptSalt(), keyfile.getScryptCostParam(), keyfile.getScryptBlockSize(), AES_KEY_LENGTH_IN_BITS);
-
-			// decrypt and check password by catching AEAD exception
-			final Cipher decCipher = aesKeyWrapCipher(kek, Cipher.UNWRAP_MODE);
-			SecretKey primary = (SecretKey) decCipher.unwrap(keyfile.getPrimaryMasterKey(), AES_KEY_ALGORITHM, Cipher.SECRET_KEY);
-			SecretKey secondary = (SecretKey) decCipher.unwrap(keyfile.getHMacMasterKey(), HMAC_KEY_ALGORITHM, Cipher.SECRET_KEY);
-
-			// everything ok, assign decrypted keys:
-			this.primaryMasterKey = primary;
-			this.hMacMasterKey = secondary;
+			kek = scrypt(password, keyfile.getScryptSalt(), keyfile.getScryptCostParam(), keyfile.getScryptBlockSize(), keyfile.getScryptParallelization(), AES_KEY_LENGTH_IN_BITS);
 		} catch (NoSuchAlgorithmException ex) {
 			throw new IllegalStateException("Algorithm should exist.", ex);
-		} catch (InvalidKeyException e) {
-			throw new WrongPasswordException();
+		} catch (IOException | StorageCryptingException e) {
+			final CompletableFuture<Void> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
 		}
+
+		return whenKeyDerived(kek, key -> {
+			try {
+				// decrypt and check password by catching AEAD exception
+				final Cipher decCipher = aesKeyWrapCipher(key, Cipher.UNWRAP_MODE);
+				SecretKey primary = (SecretKey) decCipher.unwrap(keyfile.getPrimaryMasterKey(), AES_KEY_ALGORITHM, Cipher.SECRET_KEY);
+				SecretKey secondary = (SecretKey) decCipher.unwrap(keyfile.getHMacMasterKey(), HMAC_KEY_ALGORITHM, Cipher.SECRET_KEY);
+
+				// everything ok, assign decrypted keys:
+				this.primaryMasterKey = primary;
+				this.hMacMasterKey = secondary;
+				final ThreadLocalPrimitives oldPrimitives = this.primitives;
+				this.primitives = new ThreadLocalPrimitives(primary, secondary);
+				oldPrimitives.destroy();
+				this.scryptParameters = new ScryptParameters(keyfile.getScryptCostParam(), keyfile.getScryptBlockSize(), keyfile.getScryptParallelization());
+			} catch (NoSuchAlgorithmException ex) {
+				throw new IllegalStateException("Algorithm should exist.", ex);
+			} catch (InvalidKeyException e) {
+				throw new WrongPasswordException();
+			}
+		});
+	}
+
+	/**
+	 * Runs the calibration on the {@link #KDF_EXECUTOR}. Keeps the current parameters, unless the calibrated ones are stronger.
+	 */
+	@Override
+	public CompletableFuture<Void> calibrateKeyDerivation(long targetDurationMillis, long maxMemoryInBytes) {
+		return CompletableFuture.runAsync(() -> {
+			final ScryptParameters calibrated = ScryptParameters.calibrate(targetDurationMillis, maxMemoryInBytes, KDF_EXECUTOR);
+			if (calibrated.isStrongerThan(scryptParameters)) {
+				scryptParameters = calibrated;
+			}
+		}, KDF_EXECUTOR);
+	}
+
+	/**
+	 * Blocks until the given key derivation and the subsequent en- or decryption of the master key completed. Cancels the key derivation,
+	 * if interrupted.
+	 */
+	private static void awaitKeyDerivation(CompletableFuture<Void> future) throws StorageCryptingException, IOException {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while deriving key.");
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof StorageCryptingException) {
+				throw (StorageCryptingException) cause;
+			} else if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else {
+				throw new IllegalStateException("Key derivation failed.", cause);
+			}
+		}
+	}
+
+	/**
+	 * Runs the given action as soon as the key encryption key has been derived. Cancelling the returned future also cancels the key
+	 * derivation.
+	 */
+	private static CompletableFuture<Void> whenKeyDerived(CompletableFuture<SecretKey> kek, KeyAction action) {
+		final CompletableFuture<Void> result = new CompletableFuture<>();
+		kek.whenComplete((key, exception) -> {
+			if (exception != null) {
+				result.completeExceptionally(exception);
+				return;
+			}
+			try {
+				action.run(key);
+				result.complete(null);
+			} catch (IOException | StorageCryptingException | RuntimeException e) {
+				result.completeExceptionally(e);
+			} finally {
+				destroyQuietly(key);
+			}
+		});
+		result.whenComplete((nothing, exception) -> {
+			if (result.isCancelled()) {
+				kek.cancel(true);
+			}
+		});
+		return result;
+	}
+
+	@FunctionalInterface
+	private interface KeyAction {
+		void run(SecretKey kek) throws IOException, StorageCryptingException;
 	}
 
 	@Override
 	public void swipeSensitiveDataInternal() {
+		// wipe cached primitives, which are still initialized with the old keys:
+		primitives.destroy();
 		destroyQuietly(primaryMasterKey);
 		destroyQuietly(hMacMasterKey);
+		this.primitives = new ThreadLocalPrimitives(primaryMasterKey, hMacMasterKey);
+		longFilenameMetadataStore.clear();
 	}
 
-	private void destroyQuietly(Destroyable d) {
+	private static void destroyQuietly(Destroyable d) {
 		try {
 			d.destroy();
 		} catch (DestroyFailedException e) {
@@ -209,56 +385,27 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 		}
 	}
 
-	private Cipher aesCtrCipher(SecretKey key, byte[] iv, int cipherMode) {
-		try {
-			final Cipher cipher = Cipher.getInstance(AES_CTR_CIPHER);
-			cipher.init(cipherMode, key, new IvParameterSpec(iv));
-			return cipher;
-		} catch (InvalidKeyException ex) {
-			throw new IllegalArgumentException("Invalid key.", ex);
-		} catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidAlgorithmParameterException ex) {
-			throw new IllegalStateException("Algorithm/Padding should exist and accept an IV.", ex);
-		}
-	}
-
-	private Cipher aesEcbCipher(SecretKey key, int cipherMode) {
-		try {
-			final Cipher cipher = Cipher.getInstance(AES_ECB_CIPHER);
-			cipher.init(cipherMode, key);
-			return cipher;
-		} catch (InvalidKeyException ex) {
-			throw new IllegalArgumentException("Invalid key.", ex);
-		} catch (NoSuchAlgorithmException | NoSuchPaddingException ex) {
-			throw new AssertionError("Every implementation of the Java platform is required to support AES/ECB/PKCS5Padding.", ex);
-		}
-
-	}
-
-	private Mac hmacSha256(SecretKey key) {
-		try {
-			final Mac mac = Mac.getInstance(HMAC_KEY_ALGORITHM);
-			mac.init(key);
-			return mac;
-		} catch (NoSuchAlgorithmException e) {
-			throw new AssertionError("Every implementation of the Java platform is required to support HmacSHA256.", e);
-		} catch (InvalidKeyException e) {
-			throw new IllegalArgumentException("Invalid key", e);
-		}
-	}
-
 	private byte[] randomData(int length) {
 		final byte[] result = new byte[length];
 		securePrng.nextBytes(result);
 		return result;
 	}
 
-	private SecretKey scrypt(CharSequence password, byte[] salt, int costParam, int blockSize, int keyLengthInBits) {
+	/**
+	 * @return Key derived on the {@link #KDF_EXECUTOR}.
+	 */
+	private CompletableFuture<SecretKey> scrypt(CharSequence password, byte[] salt, int costParam, int blockSize, int parallelization, int keyLengthInBits) {
 		// use sb, as password.toString's implementation is unknown
 		final StringBuilder sb = new StringBuilder(password);
 		final byte[] pw = sb.toString().getBytes();
 		try {
-			final byte[] key = SCrypt.generate(pw, salt, costParam, blockSize, 1, keyLengthInBits / Byte.SIZE);
-			return new SecretKeySpec(key, AES_KEY_ALGORITHM);
+			return Scrypt.scrypt(pw, salt, costParam, blockSize, parallelization, keyLengthInBits / Byte.SIZE, KDF_EXECUTOR).thenApply(key -> {
+				try {
+					return new SecretKeySpec(key, AES_KEY_ALGORITHM);
+				} finally {
+					Arrays.fill(key, (byte) 0);
+				}
+			});
 		} finally {
 			// destroy copied bytes of the plaintext password:
 			Arrays.fill(pw, (byte) 0);
@@ -274,11 +421,11 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 			final String[] cleartextPathComps = StringUtils.split(cleartextPath, cleartextPathSep);
 			final List<String> encryptedPathComps = new ArrayList<>(cleartextPathComps.length);
 			for (final String cleartext : cleartextPathComps) {
-				final String encrypted = encryptPathComponent(cleartext, primaryMasterKey, hMacMasterKey, ioSupport);
+				final String encrypted = encryptPathComponent(cleartext, ioSupport);
 				encryptedPathComps.add(encrypted);
 			}
 			return StringUtils.join(encryptedPathComps, encryptedPathSep);
-		} catch (InvalidKeyException | IOException e) {
+		} catch (IOException e) {
 			throw new IllegalStateException("Unable to encrypt path: " + cleartextPath, e);
 		}
 	}
@@ -298,20 +445,18 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 	 * These alternative names consist of the checksum, a unique id and a special file extension defined in
 	 * {@link FileNamingConventions#LONG_NAME_FILE_EXT}.
 	 */
-	private String encryptPathComponent(final String cleartext, final SecretKey aesKey, final SecretKey macKey, CryptorIOSupport ioSupport) throws IOException, InvalidKeyException {
+	private String encryptPathComponent(final String cleartext, CryptorIOSupport ioSupport) throws IOException {
 		final byte[] cleartextBytes = cleartext.getBytes(StandardCharsets.UTF_8);
 
 		// encrypt:
-		final byte[] encryptedBytes = AesSivCipherUtil.sivEncrypt(aesKey, macKey, cleartextBytes);
+		final byte[] encryptedBytes = primitives.aesSivCipher().encrypt(cleartextBytes);
 		final String ivAndCiphertext = ENCRYPTED_FILENAME_CODEC.encodeAsString(encryptedBytes);
 
 		if (ivAndCiphertext.length() + BASIC_FILE_EXT.length() > ENCRYPTED_FILENAME_LENGTH_LIMIT) {
 			final String groupPrefix = ivAndCiphertext.substring(0, LONG_NAME_PREFIX_LENGTH);
 			final String metadataFilename = groupPrefix + METADATA_FILE_EXT;
-			final LongFilenameMetadata metadata = this.getMetadata(ioSupport, metadataFilename);
-			final String alternativeFileName = groupPrefix + metadata.getOrCreateUuidForEncryptedFilename(ivAndCiphertext).toString() + LONG_NAME_FILE_EXT;
-			this.storeMetadata(ioSupport, metadataFilename, metadata);
-			return alternativeFileName;
+			final UUID uuid = longFilenameMetadataStore.getOrCreateUuid(ioSupport, metadataFilename, ivAndCiphertext);
+			return groupPrefix + uuid.toString() + LONG_NAME_FILE_EXT;
 		} else {
 			return ivAndCiphertext + BASIC_FILE_EXT;
 		}
@@ -323,27 +468,62 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 			final String[] encryptedPathComps = StringUtils.split(encryptedPath, encryptedPathSep);
 			final List<String> cleartextPathComps = new ArrayList<>(encryptedPathComps.length);
 			for (final String encrypted : encryptedPathComps) {
-				final String cleartext = decryptPathComponent(encrypted, primaryMasterKey, hMacMasterKey, ioSupport);
+				final String cleartext = decryptPathComponent(encrypted, ioSupport);
 				cleartextPathComps.add(new String(cleartext));
 			}
 			return StringUtils.join(cleartextPathComps, cleartextPathSep);
-		} catch (InvalidKeyException | IOException e) {
+		} catch (IOException e) {
 			throw new IllegalStateException("Unable to decrypt path: " + encryptedPath, e);
 		}
 	}
 
 	/**
-	 * @see #encryptPathComponent(String, SecretKey, CryptorIOSupport)
+	 * Decrypts each distinct path component only once (e.g. the parent directory shared by all members of a directory listing). Components
+	 * get decrypted in parallel.
 	 */
-	private String decryptPathComponent(final String encrypted, final SecretKey aesKey, final SecretKey macKey, CryptorIOSupport ioSupport) throws IOException, InvalidKeyException, DecryptFailedException {
+	@Override
+	public List<String> decryptPaths(List<String> encryptedPaths, char encryptedPathSep, char cleartextPathSep, CryptorIOSupport ioSupport) {
+		final Set<String> encryptedPathComps = encryptedPaths.stream().flatMap(path -> Arrays.stream(StringUtils.split(path, encryptedPathSep))).collect(Collectors.toSet());
+		final Map<String, String> cleartextPathComps = new ConcurrentHashMap<>(encryptedPathComps.size());
+		encryptedPathComps.parallelStream().forEach(encrypted -> {
+			try {
+				cleartextPathComps.put(encrypted, decryptPathComponent(encrypted, ioSupport));
+			} catch (DecryptFailedException e) {
+				// paths containing this component can't be decrypted and will be null.
+			} catch (IOException e) {
+				throw new IllegalStateException("Unable to decrypt path component: " + encrypted, e);
+			}
+		});
+
+		final List<String> result = new ArrayList<>(encryptedPaths.size());
+		for (final String encryptedPath : encryptedPaths) {
+			final String[] pathComps = StringUtils.split(encryptedPath, encryptedPathSep);
+			for (int i = 0; i < pathComps.length; i++) {
+				pathComps[i] = cleartextPathComps.get(pathComps[i]);
+			}
+			if (ArrayUtils.contains(pathComps, null)) {
+				result.add(null);
+			} else {
+				result.add(StringUtils.join(pathComps, cleartextPathSep));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @see #encryptPathComponent(String, CryptorIOSupport)
+	 */
+	private String decryptPathComponent(final String encrypted, CryptorIOSupport ioSupport) throws IOException, DecryptFailedException {
 		final String ciphertext;
 		if (encrypted.endsWith(LONG_NAME_FILE_EXT)) {
 			final String basename = StringUtils.removeEnd(encrypted, LONG_NAME_FILE_EXT);
 			final String groupPrefix = basename.substring(0, LONG_NAME_PREFIX_LENGTH);
 			final String uuid = basename.substring(LONG_NAME_PREFIX_LENGTH);
 			final String metadataFilename = groupPrefix + METADATA_FILE_EXT;
-			final LongFilenameMetadata metadata = this.getMetadata(ioSupport, metadataFilename);
-			ciphertext = metadata.getEncryptedFilenameForUUID(UUID.fromString(uuid));
+			ciphertext = longFilenameMetadataStore.getEncryptedFilename(ioSupport, metadataFilename, UUID.fromString(uuid));
+			if (ciphertext == null) {
+				throw new DecryptFailedException("Unknown long file name: " + encrypted);
+			}
 		} else if (encrypted.endsWith(BASIC_FILE_EXT)) {
 			ciphertext = StringUtils.removeEndIgnoreCase(encrypted, BASIC_FILE_EXT);
 		} else {
@@ -352,42 +532,32 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 
 		// decrypt:
 		final byte[] encryptedBytes = ENCRYPTED_FILENAME_CODEC.decode(ciphertext);
-		final byte[] cleartextBytes = AesSivCipherUtil.sivDecrypt(aesKey, macKey, encryptedBytes);
+		final byte[] cleartextBytes = primitives.aesSivCipher().decrypt(encryptedBytes);
 
 		return new String(cleartextBytes, StandardCharsets.UTF_8);
 	}
 
-	private LongFilenameMetadata getMetadata(CryptorIOSupport ioSupport, String metadataFile) throws IOException {
-		final byte[] fileContent = ioSupport.readPathSpecificMetadata(metadataFile);
-		if (fileContent == null) {
-			return new LongFilenameMetadata();
-		} else {
-			return objectMapper.readValue(fileContent, LongFilenameMetadata.class);
-		}
-	}
-
-	private void storeMetadata(CryptorIOSupport ioSupport, String metadataFile, LongFilenameMetadata metadata) throws JsonProcessingException, IOException {
-		ioSupport.writePathSpecificMetadata(metadataFile, objectMapper.writeValueAsBytes(metadata));
-	}
-
 	@Override
 	public Long decryptedContentLength(SeekableByteChannel encryptedFile) throws IOException {
-		// skip 128bit IV + 256 bit MAC:
-		encryptedFile.position(48);
+		// skip 128bit IV:
+		encryptedFile.position(AES_BLOCK_LENGTH);
 
 		// read encrypted value:
 		final ByteBuffer encryptedFileSizeBuffer = ByteBuffer.allocate(AES_BLOCK_LENGTH);
-		final int numFileSizeBytesRead = encryptedFile.read(encryptedFileSizeBuffer);
+		final int numFileSizeBytesRead = readFully(encryptedFile, encryptedFileSizeBuffer);
 
 		// return "unknown" value, if EOF
 		if (numFileSizeBytesRead != encryptedFileSizeBuffer.capacity()) {
 			return null;
 		}
 
-		// decrypt size:
+		return decryptContentLength(encryptedFileSizeBuffer.array());
+	}
+
+	private long decryptContentLength(byte[] encryptedContentLength) {
 		try {
-			final Cipher sizeCipher = aesEcbCipher(primaryMasterKey, Cipher.DECRYPT_MODE);
-			final byte[] decryptedFileSize = sizeCipher.doFinal(encryptedFileSizeBuffer.array());
+			final Cipher sizeCipher = primitives.aesEcbCipher(Cipher.DECRYPT_MODE);
+			final byte[] decryptedFileSize = sizeCipher.doFinal(encryptedContentLength);
 			final ByteBuffer fileSizeBuffer = ByteBuffer.wrap(decryptedFileSize);
 			return fileSizeBuffer.getLong();
 		} catch (IllegalBlockSizeException | BadPaddingException e) {
@@ -395,94 +565,158 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 		}
 	}
 
-	private void encryptedContentLength(SeekableByteChannel encryptedFile, Long contentLength) throws IOException {
-		final ByteBuffer encryptedFileSizeBuffer;
-
+	private byte[] encryptContentLength(long contentLength) {
 		// encrypt content length in ECB mode (content length is less than one block):
 		try {
 			final ByteBuffer fileSizeBuffer = ByteBuffer.allocate(Long.BYTES);
 			fileSizeBuffer.putLong(contentLength);
-			final Cipher sizeCipher = aesEcbCipher(primaryMasterKey, Cipher.ENCRYPT_MODE);
-			final byte[] encryptedFileSize = sizeCipher.doFinal(fileSizeBuffer.array());
-			encryptedFileSizeBuffer = ByteBuffer.wrap(encryptedFileSize);
+			final Cipher sizeCipher = primitives.aesEcbCipher(Cipher.ENCRYPT_MODE);
+			return sizeCipher.doFinal(fileSizeBuffer.array());
 		} catch (IllegalBlockSizeException | BadPaddingException e) {
 			throw new IllegalStateException("Block size must be valid, as padding is requested. BadPaddingException not possible in encrypt mode.", e);
 		}
+	}
 
-		// skip 128bit IV + 256 bit MAC:
-		encryptedFile.position(48);
+	/**
+	 * Writes the file header (IV, encrypted content length and header MAC) to the beginning of the given file.
+	 */
+	private void writeHeader(SeekableByteChannel encryptedFile, byte[] headerIv, long contentLength) throws IOException {
+		final byte[] encryptedContentLength = encryptContentLength(contentLength);
+		final Mac headerMac = primitives.hmacSha256();
+		headerMac.update(headerIv);
+		headerMac.update(encryptedContentLength);
+
+		final ByteBuffer header = ByteBuffer.allocate(CONTENT_HEADER_LENGTH);
+		header.put(headerIv);
+		header.put(encryptedContentLength);
+		header.put(headerMac.doFinal());
+		header.flip();
+		encryptedFile.position(0);
+		writeFully(encryptedFile, header);
+	}
 
-		// write result:
-		encryptedFile.write(encryptedFileSizeBuffer);
+	/**
+	 * Reads and authenticates the file header.
+	 * 
+	 * @return The header or <code>null</code> if the file is too short to contain a header.
+	 */
+	private FileHeader readHeader(SeekableByteChannel encryptedFile) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(CONTENT_HEADER_LENGTH);
+		encryptedFile.position(0);
+		if (readFully(encryptedFile, header) != CONTENT_HEADER_LENGTH) {
+			return null;
+		}
+		final byte[] headerIv = Arrays.copyOfRange(header.array(), 0, AES_BLOCK_LENGTH);
+		final byte[] encryptedContentLength = Arrays.copyOfRange(header.array(), AES_BLOCK_LENGTH, AES_BLOCK_LENGTH * 2);
+		final byte[] storedHeaderMac = Arrays.copyOfRange(header.array(), AES_BLOCK_LENGTH * 2, CONTENT_HEADER_LENGTH);
+
+		final Mac headerMac = primitives.hmacSha256();
+		headerMac.update(headerIv);
+		headerMac.update(encryptedContentLength);
+		final boolean authentic = MessageDigest.isEqual(storedHeaderMac, headerMac.doFinal());
+
+		return new FileHeader(headerIv, decryptContentLength(encryptedContentLength), authentic);
 	}
 
 	@Override
 	public boolean isAuthentic(SeekableByteChannel encryptedFile) throws IOException {
-		// init mac:
-		final Mac calculatedMac = this.hmacSha256(hMacMasterKey);
-
-		// read stored mac:
-		encryptedFile.position(16);
-		final ByteBuffer storedMac = ByteBuffer.allocate(calculatedMac.getMacLength());
-		final int numMacBytesRead = encryptedFile.read(storedMac);
-
-		// check validity of header:
-		if (numMacBytesRead != calculatedMac.getMacLength()) {
-			throw new IOException("Failed to read file header.");
+		final FileHeader header = readHeader(encryptedFile);
+		if (header == null || !header.authentic) {
+			return false;
 		}
 
-		// go to begin of content:
-		encryptedFile.position(64);
-
-		// calculated MAC
-		final InputStream in = new SeekableByteChannelInputStream(encryptedFile);
-		final InputStream macIn = new MacInputStream(in, calculatedMac);
-		IOUtils.copyLarge(macIn, new NullOutputStream());
+		// authenticate each chunk:
+		final Mac mac = primitives.hmacSha256();
+		final long numChunks = numberOfChunks(header.contentLength);
+		final ByteBuffer encryptedChunk = ByteBuffer.allocate(ENCRYPTED_CONTENT_CHUNK_SIZE);
+		for (long chunkNumber = 0; chunkNumber < numChunks; chunkNumber++) {
+			if (!readChunk(encryptedFile, encryptedChunk, chunkSize(header.contentLength, chunkNumber))) {
+				return false;
+			}
+			if (!isChunkAuthentic(mac, header.iv, chunkNumber, encryptedChunk)) {
+				return false;
+			}
+		}
 
-		// compare (in constant time):
-		return MessageDigest.isEqual(storedMac.array(), calculatedMac.doFinal());
+		// no further data expected after the last chunk:
+		return encryptedFile.position() == encryptedFile.size();
 	}
 
 	@Override
 	public Long decryptFile(SeekableByteChannel encryptedFile, OutputStream plaintextFile) throws IOException, DecryptFailedException {
-		// read iv:
-		encryptedFile.position(0);
-		final ByteBuffer countingIv = ByteBuffer.allocate(AES_BLOCK_LENGTH);
-		final int numIvBytesRead = encryptedFile.read(countingIv);
-
-		// init mac:
-		final Mac calculatedMac = this.hmacSha256(hMacMasterKey);
-
-		// read stored mac:
-		final ByteBuffer storedMac = ByteBuffer.allocate(calculatedMac.getMacLength());
-		final int numMacBytesRead = encryptedFile.read(storedMac);
-
-		// read file size:
-		final Long fileSize = decryptedContentLength(encryptedFile);
+		final FileHeader header = readHeader(encryptedFile);
+		if (header == null) {
+			throw new IOException("Failed to read file header.");
+		}
+		return decryptChunks(encryptedFile, plaintextFile, header, 0, header.contentLength);
+	}
 
-		// check validity of header:
-		if (numIvBytesRead != AES_BLOCK_LENGTH || numMacBytesRead != calculatedMac.getMacLength() || fileSize == null) {
+	@Override
+	public Long decryptRange(SeekableByteChannel encryptedFile, OutputStream plaintextFile, long pos, long length) throws IOException, DecryptFailedException {
+		final FileHeader header = readHeader(encryptedFile);
+		if (header == null) {
 			throw new IOException("Failed to read file header.");
 		}
+		return decryptChunks(encryptedFile, plaintextFile, header, pos, length);
+	}
 
-		// go to begin of content:
-		encryptedFile.position(64);
+	/**
+	 * Decrypts and authenticates only those chunks, that contain the requested range.
+	 * 
+	 * @param pos First cleartext byte (inclusive)
+	 * @param length Number of requested cleartext bytes beginning at pos. Will be truncated, if exceeding the content length.
+	 */
+	private long decryptChunks(SeekableByteChannel encryptedFile, OutputStream plaintextFile, FileHeader header, long pos, long length) throws IOException, DecryptFailedException {
+		final long end = Math.min(header.contentLength, pos + length);
+		if (pos >= end) {
+			return 0l;
+		}
 
-		// generate cipher:
-		final Cipher cipher = this.aesCtrCipher(primaryMasterKey, countingIv.array(), Cipher.DECRYPT_MODE);
+		final long firstChunk = pos / CONTENT_CHUNK_SIZE; // cut of fraction!
+		final long lastChunk = (end - 1) / CONTENT_CHUNK_SIZE;
+		final Deque<Future<ChunkBuffers>> chunksInFlight = new ArrayDeque<>(MAX_CHUNKS_IN_FLIGHT);
+		final ChunkBuffers[] slots = new ChunkBuffers[MAX_CHUNKS_IN_FLIGHT];
+		boolean authentic = header.authentic;
+		boolean truncated = false;
+		long bytesDecrypted = 0;
 
-		// read content
-		final InputStream in = new SeekableByteChannelInputStream(encryptedFile);
-		final InputStream macIn = new MacInputStream(in, calculatedMac);
-		final InputStream cipheredIn = new CipherInputStream(macIn, cipher);
-		final long bytesDecrypted = IOUtils.copyLarge(cipheredIn, plaintextFile, 0, fileSize);
+		// read ahead on this thread, while previously read chunks are authenticated and decrypted in parallel:
+		encryptedFile.position(CONTENT_HEADER_LENGTH + firstChunk * ENCRYPTED_CONTENT_CHUNK_SIZE);
+		try {
+			for (long chunkNumber = firstChunk; chunkNumber <= lastChunk; chunkNumber++) {
+				final int chunkSize = chunkSize(header.contentLength, chunkNumber);
+				final ChunkBuffers slot = ChunkBuffers.reuseOrCreate(slots, chunkNumber);
+				if (!readChunk(encryptedFile, slot.ciphertext, chunkSize)) {
+					truncated = true;
+					break;
+				}
+				final long currentChunkNumber = chunkNumber;
+				chunksInFlight.add(submitChunkTask(() -> decryptChunk(slot, header.iv, currentChunkNumber)));
+
+				// writer stage: emit oldest chunk, as soon as too many chunks are in flight.
+				if (chunksInFlight.size() >= MAX_CHUNKS_IN_FLIGHT) {
+					final ChunkBuffers chunk = awaitChunk(chunksInFlight.remove());
+					authentic &= chunk.authentic;
+					bytesDecrypted += writeRequestedPart(chunk, plaintextFile, pos, end);
+				}
+			}
+			while (!chunksInFlight.isEmpty()) {
+				final ChunkBuffers chunk = awaitChunk(chunksInFlight.remove());
+				authentic &= chunk.authentic;
+				bytesDecrypted += writeRequestedPart(chunk, plaintextFile, pos, end);
+			}
+		} finally {
+			// skip chunks not started yet. running ones finish on their own, without interrupting the executor's threads:
+			for (final Future<ChunkBuffers> chunk : chunksInFlight) {
+				chunk.cancel(false);
+			}
+		}
 
-		// drain remaining bytes to /dev/null to complete MAC calculation:
-		IOUtils.copyLarge(macIn, new NullOutputStream());
+		if (truncated) {
+			throw new MacAuthenticationFailedException("Unexpected end of file.");
+		}
 
-		// compare (in constant time):
-		final boolean macMatches = MessageDigest.isEqual(storedMac.array(), calculatedMac.doFinal());
-		if (!macMatches) {
+		if (!authentic) {
 			// This exception will be thrown AFTER we sent the decrypted content to the user.
 			// This has two advantages:
 			// - we don't need to read files twice
@@ -495,87 +729,235 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 	}
 
 	@Override
-	public Long decryptRange(SeekableByteChannel encryptedFile, OutputStream plaintextFile, long pos, long length) throws IOException, DecryptFailedException {
-		// read iv:
-		encryptedFile.position(0);
-		final ByteBuffer countingIv = ByteBuffer.allocate(AES_BLOCK_LENGTH);
-		final int numIvBytesRead = encryptedFile.read(countingIv);
+	public Long encryptFile(InputStream plaintextFile, SeekableByteChannel encryptedFile) throws IOException {
+		// truncate file
+		encryptedFile.truncate(0);
 
-		// check validity of header:
-		if (numIvBytesRead != AES_BLOCK_LENGTH) {
-			throw new IOException("Failed to read file header.");
-		}
+		// write header with "zero length" as a placeholder, which will be read by concurrent requests, as long as encryption didn't finish:
+		final byte[] headerIv = randomData(AES_BLOCK_LENGTH);
+		writeHeader(encryptedFile, headerIv, 0l);
 
-		// seek relevant position and update iv:
-		long firstRelevantBlock = pos / AES_BLOCK_LENGTH; // cut of fraction!
-		long beginOfFirstRelevantBlock = firstRelevantBlock * AES_BLOCK_LENGTH;
-		long offsetInsideFirstRelevantBlock = pos - beginOfFirstRelevantBlock;
-		countingIv.putLong(AES_BLOCK_LENGTH - Long.BYTES, firstRelevantBlock);
+		// read chunks on this thread, encrypt them in parallel and write them in order:
+		final Deque<Future<ChunkBuffers>> chunksInFlight = new ArrayDeque<>(MAX_CHUNKS_IN_FLIGHT);
+		final ChunkBuffers[] slots = new ChunkBuffers[MAX_CHUNKS_IN_FLIGHT];
+		long plaintextSize = 0;
+		try {
+			int read = CONTENT_CHUNK_SIZE;
+			for (long chunkNumber = 0; read == CONTENT_CHUNK_SIZE; chunkNumber++) {
+				final ChunkBuffers slot = ChunkBuffers.reuseOrCreate(slots, chunkNumber);
+				read = IOUtils.read(plaintextFile, slot.cleartext.array(), 0, CONTENT_CHUNK_SIZE);
+				if (read == 0) {
+					break;
+				}
+				slot.cleartext.clear();
+				slot.cleartext.limit(read);
+				final long currentChunkNumber = chunkNumber;
+				chunksInFlight.add(submitChunkTask(() -> encryptChunk(slot, headerIv, currentChunkNumber)));
+				plaintextSize += read;
+
+				// writer stage: write oldest chunk, as soon as too many chunks are in flight.
+				if (chunksInFlight.size() >= MAX_CHUNKS_IN_FLIGHT) {
+					writeFully(encryptedFile, awaitChunk(chunksInFlight.remove()).ciphertext);
+				}
+			}
+			while (!chunksInFlight.isEmpty()) {
+				writeFully(encryptedFile, awaitChunk(chunksInFlight.remove()).ciphertext);
+			}
+		} finally {
+			// skip chunks not started yet. running ones finish on their own, without interrupting the executor's threads:
+			for (final Future<ChunkBuffers> chunk : chunksInFlight) {
+				chunk.cancel(false);
+			}
+		}
 
-		// fast forward stream:
-		encryptedFile.position(64 + beginOfFirstRelevantBlock);
+		// write final header containing the actual plaintextSize:
+		writeHeader(encryptedFile, headerIv, plaintextSize);
 
-		// generate cipher:
-		final Cipher cipher = this.aesCtrCipher(primaryMasterKey, countingIv.array(), Cipher.DECRYPT_MODE);
+		return plaintextSize;
+	}
 
-		// read content
-		final InputStream in = new SeekableByteChannelInputStream(encryptedFile);
-		final InputStream cipheredIn = new CipherInputStream(in, cipher);
-		return IOUtils.copyLarge(cipheredIn, plaintextFile, offsetInsideFirstRelevantBlock, length);
+	/**
+	 * Encrypts the cleartext of a single chunk using a random nonce. Can be invoked concurrently for different slots.
+	 * 
+	 * @return The given slot, whose ciphertext buffer contains nonce, ciphertext and MAC, ready to be read.
+	 */
+	private ChunkBuffers encryptChunk(ChunkBuffers slot, byte[] headerIv, long chunkNumber) {
+		final byte[] nonce = randomData(CONTENT_CHUNK_NONCE_LENGTH);
+		final Cipher cipher = primitives.aesCtrCipher(nonce, Cipher.ENCRYPT_MODE);
+		final Mac mac = primitives.hmacSha256();
+		final ByteBuffer encryptedChunk = slot.ciphertext;
+		try {
+			encryptedChunk.clear();
+			encryptedChunk.put(nonce);
+			cipher.doFinal(slot.cleartext, encryptedChunk);
+			final int macOffset = encryptedChunk.position();
+			encryptedChunk.flip();
+			updateChunkMac(mac, headerIv, chunkNumber, encryptedChunk);
+			encryptedChunk.limit(macOffset + MAC_LENGTH);
+			mac.doFinal(encryptedChunk.array(), macOffset);
+			encryptedChunk.position(0);
+			return slot;
+		} catch (ShortBufferException | IllegalBlockSizeException | BadPaddingException e) {
+			throw new IllegalStateException("Chunk buffer must be large enough. CTR mode doesn't use padding.", e);
+		}
 	}
 
-	@Override
-	public Long encryptFile(InputStream plaintextFile, SeekableByteChannel encryptedFile) throws IOException {
-		// truncate file
-		encryptedFile.truncate(0);
+	/**
+	 * Submits a chunk task to the {@link #CHUNK_CRYPTO_EXECUTOR}, as soon as a {@link #CHUNK_TASK_PERMITS permit} is available. The permit
+	 * is returned, when the task has finished running or has been skipped due to cancellation, so a cancelled task can't use its slot
+	 * while the permit is handed to another task.
+	 */
+	private static <T> Future<T> submitChunkTask(Callable<T> task) throws IOException {
+		try {
+			CHUNK_TASK_PERMITS.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for chunk processing.");
+		}
+		final FutureTask<T> future = new FutureTask<T>(task);
+		try {
+			CHUNK_CRYPTO_EXECUTOR.execute(() -> {
+				try {
+					future.run();
+				} finally {
+					CHUNK_TASK_PERMITS.release();
+				}
+			});
+		} catch (RuntimeException e) {
+			CHUNK_TASK_PERMITS.release();
+			throw e;
+		}
+		return future;
+	}
 
-		// use an IV, whose last 8 bytes store a long used in counter mode and write initial value to file.
-		final ByteBuffer countingIv = ByteBuffer.wrap(randomData(AES_BLOCK_LENGTH));
-		countingIv.putLong(AES_BLOCK_LENGTH - Long.BYTES, 0l);
-		encryptedFile.write(countingIv);
+	/**
+	 * Waits for an en- or decryption task submitted to {@link #CHUNK_CRYPTO_EXECUTOR}.
+	 */
+	private static <T> T awaitChunk(Future<T> chunk) throws IOException {
+		try {
+			return chunk.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for chunk processing.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else {
+				throw new IllegalStateException("Chunk processing failed.", e.getCause());
+			}
+		}
+	}
 
-		// init crypto stuff:
-		final Mac mac = this.hmacSha256(hMacMasterKey);
-		final Cipher cipher = this.aesCtrCipher(primaryMasterKey, countingIv.array(), Cipher.ENCRYPT_MODE);
+	/**
+	 * Authenticates and decrypts an encrypted chunk previously read by {@link #readChunk(SeekableByteChannel, ByteBuffer, int)}. Can be
+	 * invoked concurrently for different slots.
+	 * 
+	 * @return The given slot, whose cleartext buffer contains the decrypted chunk, ready to be read.
+	 */
+	private ChunkBuffers decryptChunk(ChunkBuffers slot, byte[] headerIv, long chunkNumber) {
+		final ByteBuffer encryptedChunk = slot.ciphertext;
+		slot.chunkNumber = chunkNumber;
+		slot.authentic = isChunkAuthentic(primitives.hmacSha256(), headerIv, chunkNumber, encryptedChunk);
+		final byte[] nonce = new byte[CONTENT_CHUNK_NONCE_LENGTH];
+		encryptedChunk.get(nonce);
+		encryptedChunk.limit(encryptedChunk.limit() - MAC_LENGTH);
+		final Cipher cipher = primitives.aesCtrCipher(nonce, Cipher.DECRYPT_MODE);
+		try {
+			slot.cleartext.clear();
+			cipher.doFinal(encryptedChunk, slot.cleartext);
+			slot.cleartext.flip();
+			return slot;
+		} catch (ShortBufferException | IllegalBlockSizeException | BadPaddingException e) {
+			throw new IllegalStateException("Chunk buffer must be large enough. CTR mode doesn't use padding.", e);
+		}
+	}
 
-		// init mac buffer and skip 32 bytes
-		final ByteBuffer macBuffer = ByteBuffer.allocate(mac.getMacLength());
-		encryptedFile.write(macBuffer);
+	/**
+	 * Writes the part of the given decrypted chunk, that lies within the requested range.
+	 * 
+	 * @param pos First requested byte (inclusive)
+	 * @param end Last requested byte (exclusive)
+	 * @return Number of bytes written
+	 */
+	private static int writeRequestedPart(ChunkBuffers chunk, OutputStream plaintextFile, long pos, long end) throws IOException {
+		final long beginOfChunk = chunk.chunkNumber * CONTENT_CHUNK_SIZE;
+		final int offset = (int) (Math.max(pos, beginOfChunk) - beginOfChunk);
+		final int len = (int) (Math.min(end, beginOfChunk + chunk.cleartext.limit()) - beginOfChunk) - offset;
+		plaintextFile.write(chunk.cleartext.array(), offset, len);
+		return len;
+	}
 
-		// encrypt and write "zero length" as a placeholder, which will be read by concurrent requests, as long as encryption didn't finish:
-		encryptedContentLength(encryptedFile, 0l);
+	/**
+	 * @param encryptedChunk Buffer containing nonce, ciphertext and MAC. Its position will be reset to 0.
+	 * @return <code>true</code> if the MAC stored at the end of the chunk matches the MAC over header IV, chunk number, nonce and ciphertext.
+	 */
+	private boolean isChunkAuthentic(Mac mac, byte[] headerIv, long chunkNumber, ByteBuffer encryptedChunk) {
+		final int end = encryptedChunk.limit();
+		encryptedChunk.position(0);
+		encryptedChunk.limit(end - MAC_LENGTH);
+		updateChunkMac(mac, headerIv, chunkNumber, encryptedChunk);
+		encryptedChunk.limit(end);
+		final byte[] storedMac = new byte[MAC_LENGTH];
+		encryptedChunk.get(storedMac);
+		encryptedChunk.position(0);
+		return MessageDigest.isEqual(storedMac, mac.doFinal());
+	}
 
-		// write content:
-		final OutputStream out = new SeekableByteChannelOutputStream(encryptedFile);
-		final OutputStream macOut = new MacOutputStream(out, mac);
-		final OutputStream cipheredOut = new CipherOutputStream(macOut, cipher);
-		final OutputStream blockSizeBufferedOut = new BufferedOutputStream(cipheredOut, AES_BLOCK_LENGTH);
-		final Long plaintextSize = IOUtils.copyLarge(plaintextFile, blockSizeBufferedOut);
+	/**
+	 * Binds the chunk to its file and its position by including the header IV and chunk number in the MAC.
+	 * 
+	 * @param nonceAndCiphertext Will be consumed from its position to its limit.
+	 */
+	private void updateChunkMac(Mac mac, byte[] headerIv, long chunkNumber, ByteBuffer nonceAndCiphertext) {
+		mac.update(headerIv);
+		mac.update(ByteBuffer.allocate(Long.BYTES).putLong(chunkNumber).array());
+		mac.update(nonceAndCiphertext);
+	}
 
-		// ensure total byte count is a multiple of the block size, in CTR mode:
-		final int remainderToFillLastBlock = AES_BLOCK_LENGTH - (int) (plaintextSize % AES_BLOCK_LENGTH);
-		blockSizeBufferedOut.write(new byte[remainderToFillLastBlock]);
+	/**
+	 * Reads the next encrypted chunk from the current position of the given file into the given buffer, which is ready to be read
+	 * afterwards.
+	 * 
+	 * @param chunkSize Number of cleartext bytes of the expected chunk.
+	 * @return <code>false</code> if the file ended before the complete chunk could be read.
+	 */
+	private boolean readChunk(SeekableByteChannel encryptedFile, ByteBuffer encryptedChunk, int chunkSize) throws IOException {
+		final int encryptedChunkSize = CONTENT_CHUNK_NONCE_LENGTH + chunkSize + MAC_LENGTH;
+		encryptedChunk.clear();
+		encryptedChunk.limit(encryptedChunkSize);
+		final boolean complete = readFully(encryptedFile, encryptedChunk) == encryptedChunkSize;
+		encryptedChunk.flip();
+		return complete;
+	}
 
-		// append a few blocks of fake data:
-		final int numberOfPlaintextBlocks = (int) Math.ceil(plaintextSize / AES_BLOCK_LENGTH);
-		final int upToTenPercentFakeBlocks = (int) Math.ceil(Math.random() * 0.1 * numberOfPlaintextBlocks);
-		final byte[] emptyBytes = new byte[AES_BLOCK_LENGTH];
-		for (int i = 0; i < upToTenPercentFakeBlocks; i += AES_BLOCK_LENGTH) {
-			blockSizeBufferedOut.write(emptyBytes);
-		}
-		blockSizeBufferedOut.flush();
+	private static long numberOfChunks(long contentLength) {
+		return (contentLength + CONTENT_CHUNK_SIZE - 1) / CONTENT_CHUNK_SIZE;
+	}
 
-		// write MAC of total ciphertext:
-		macBuffer.clear();
-		macBuffer.put(mac.doFinal());
-		macBuffer.flip();
-		encryptedFile.position(16); // right behind the IV
-		encryptedFile.write(macBuffer); // 256 bit MAC
+	/**
+	 * @return Number of cleartext bytes in the given chunk. Equals {@link AesCryptographicConfiguration#CONTENT_CHUNK_SIZE} for all but the
+	 *         last chunk.
+	 */
+	private static int chunkSize(long contentLength, long chunkNumber) {
+		return (int) Math.min(CONTENT_CHUNK_SIZE, contentLength - chunkNumber * CONTENT_CHUNK_SIZE);
+	}
 
-		// encrypt and write plaintextSize:
-		encryptedContentLength(encryptedFile, plaintextSize);
+	private static int readFully(SeekableByteChannel channel, ByteBuffer buffer) throws IOException {
+		int total = 0;
+		while (buffer.hasRemaining()) {
+			final int read = channel.read(buffer);
+			if (read == -1) {
+				break;
+			}
+			total += read;
+		}
+		return total;
+	}
 
-		return plaintextSize;
+	private static void writeFully(SeekableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
 	}
 
 	@Override
@@ -588,4 +970,42 @@ public class Aes256Cryptor extends AbstractCryptor implements AesCryptographicCo
 		};
 	}
 
+	private static class FileHeader {
+
+		private final byte[] iv;
+		private final long contentLength;
+		private final boolean authentic;
+
+		private FileHeader(byte[] iv, long contentLength, boolean authentic) {
+			this.iv = iv;
+			this.contentLength = contentLength;
+			this.authentic = authentic;
+		}
+
+	}
+
+	/**
+	 * Reusable cleartext and ciphertext buffers of one chunk slot. Each file operation cycles through up to
+	 * {@link Aes256Cryptor#MAX_CHUNKS_IN_FLIGHT} slots, so no buffers need to be allocated per chunk.
+	 */
+	private static class ChunkBuffers {
+
+		private final ByteBuffer cleartext = ByteBuffer.allocate(CONTENT_CHUNK_SIZE);
+		private final ByteBuffer ciphertext = ByteBuffer.allocate(ENCRYPTED_CONTENT_CHUNK_SIZE);
+		private long chunkNumber;
+		private boolean authentic;
+
+		/**
+		 * A slot can be reused, as soon as the chunk processed {@link Aes256Cryptor#MAX_CHUNKS_IN_FLIGHT} chunks before has been written.
+		 */
+		private static ChunkBuffers reuseOrCreate(ChunkBuffers[] slots, long chunkNumber) {
+			final int index = (int) (chunkNumber % slots.length);
+			if (slots[index] == null) {
+				slots[index] = new ChunkBuffers();
+			}
+			return slots[index];
+		}
+
+	}
+
 }
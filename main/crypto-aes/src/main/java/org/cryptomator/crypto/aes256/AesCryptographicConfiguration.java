@@ -25,6 +25,12 @@ interface AesCryptographicConfiguration {
 	 */
 	int SCRYPT_BLOCK_SIZE = 8;
 
+	/**
+	 * Scrypt parallelization parameter. Each lane gets computed on its own core, so higher values only increase the unlock time on
+	 * machines with fewer cores.
+	 */
+	int SCRYPT_PARALLELIZATION = 1;
+
 	/**
 	 * Number of bytes of the master key. Should be the maximum possible AES key length to provide best security.
 	 */
@@ -60,8 +66,7 @@ interface AesCryptographicConfiguration {
 	String AES_KEYWRAP_CIPHER = "AESWrap";
 
 	/**
-	 * Cipher specs for file name and file content encryption. Using CTR-mode for random access.<br/>
-	 * <strong>Important</strong>: As JCE doesn't support a padding, input must be a multiple of the block size.
+	 * Cipher specs for file content encryption. Using CTR-mode, so chunks don't need to be padded to a multiple of the block size.
 	 * 
 	 * @see http://docs.oracle.com/javase/7/docs/technotes/guides/security/StandardNames.html#Cipher
 	 */
@@ -86,4 +91,36 @@ interface AesCryptographicConfiguration {
 	 */
 	int FILE_NAME_IV_LENGTH = 5;
 
+	/**
+	 * Version of the vault format, stored in the masterkey file. Vaults of other versions can not be unlocked, as their file contents are
+	 * stored in an incompatible format.
+	 */
+	int CURRENT_VAULT_VERSION = 1;
+
+	/**
+	 * Length of the MAC used to authenticate the file header and each content chunk (HmacSHA256).
+	 */
+	int MAC_LENGTH = 32;
+
+	/**
+	 * File header consisting of a 16 byte IV, the 16 byte encrypted content length and a 32 byte MAC of the former two.
+	 */
+	int CONTENT_HEADER_LENGTH = AES_BLOCK_LENGTH + AES_BLOCK_LENGTH + MAC_LENGTH;
+
+	/**
+	 * Number of cleartext bytes per content chunk. Each chunk is encrypted and authenticated on its own, so random access only needs to
+	 * read and verify the chunks containing the requested bytes. Only the last chunk of a file may be shorter.
+	 */
+	int CONTENT_CHUNK_SIZE = 32 * 1024;
+
+	/**
+	 * Random nonce prepended to each content chunk. Used as IV for the chunk's AES-CTR encryption.
+	 */
+	int CONTENT_CHUNK_NONCE_LENGTH = AES_BLOCK_LENGTH;
+
+	/**
+	 * Maximum number of bytes of an encrypted content chunk: Nonce, ciphertext and MAC of header IV, chunk number, nonce and ciphertext.
+	 */
+	int ENCRYPTED_CONTENT_CHUNK_SIZE = CONTENT_CHUNK_NONCE_LENGTH + CONTENT_CHUNK_SIZE + MAC_LENGTH;
+
 }
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.crypto.aes256;
+
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.engines.AESFastEngine;
+import org.bouncycastle.crypto.macs.CMac;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.cryptomator.crypto.exceptions.DecryptFailedException;
+
+/**
+ * RFC 5297 SIV mode with keys expanded only once. Apart from the results, en- and decryption don't allocate any memory, as intermediate
+ * values are kept in scratch buffers. Therefore instances are not thread-safe and must be confined to a single thread.
+ * 
+ * @see AesSivCipherUtil
+ */
+final class AesSivCipher {
+
+	private static final int BLOCK_SIZE = 16;
+	private static final byte[] BYTES_ZERO = new byte[BLOCK_SIZE];
+	private static final byte DOUBLING_CONST = (byte) 0x87;
+
+	private final BlockCipher ctrAes;
+	private final CMac cmac;
+	private final byte[] d = new byte[BLOCK_SIZE];
+	private final byte[] block = new byte[BLOCK_SIZE];
+	private final byte[] ctr = new byte[BLOCK_SIZE];
+	private final byte[] keystream = new byte[BLOCK_SIZE];
+
+	/**
+	 * @param aesKey 128, 192 or 256 bit key used for CTR mode encryption.
+	 * @param macKey Key used for S2V.
+	 * @throws InvalidKeyException If the aesKey has an invalid length.
+	 */
+	AesSivCipher(byte[] aesKey, byte[] macKey) throws InvalidKeyException {
+		if (aesKey.length != 16 && aesKey.length != 24 && aesKey.length != 32) {
+			throw new InvalidKeyException("Invalid aesKey length " + aesKey.length);
+		}
+		this.ctrAes = new AESFastEngine();
+		this.ctrAes.init(true, new KeyParameter(aesKey));
+		this.cmac = new CMac(new AESFastEngine());
+		this.cmac.init(new KeyParameter(macKey));
+	}
+
+	/**
+	 * Re-initializes both engines with an all-zero key and clears the scratch buffers, so this instance no longer references the expanded
+	 * keys. Must not be invoked while another thread is using this instance.
+	 */
+	void destroy() {
+		final KeyParameter zeroKey = new KeyParameter(new byte[BLOCK_SIZE]);
+		ctrAes.init(true, zeroKey);
+		cmac.init(zeroKey);
+		Arrays.fill(d, (byte) 0);
+		Arrays.fill(block, (byte) 0);
+		Arrays.fill(ctr, (byte) 0);
+		Arrays.fill(keystream, (byte) 0);
+	}
+
+	/**
+	 * @return Synthetic IV followed by the ciphertext.
+	 */
+	byte[] encrypt(byte[] plaintext, byte[]... additionalData) {
+		final byte[] result = new byte[BLOCK_SIZE + plaintext.length];
+		s2v(plaintext, additionalData, result);
+		ctr(result, plaintext, 0, result, BLOCK_SIZE, plaintext.length);
+		return result;
+	}
+
+	/**
+	 * @param ciphertext Synthetic IV followed by the actual ciphertext.
+	 * @throws DecryptFailedException If the ciphertext is too short or not authentic.
+	 */
+	byte[] decrypt(byte[] ciphertext, byte[]... additionalData) throws DecryptFailedException {
+		if (ciphertext.length < BLOCK_SIZE) {
+			throw new DecryptFailedException("Ciphertext too short.");
+		}
+		final byte[] plaintext = new byte[ciphertext.length - BLOCK_SIZE];
+		ctr(ciphertext, ciphertext, BLOCK_SIZE, plaintext, 0, plaintext.length);
+
+		final byte[] control = new byte[BLOCK_SIZE];
+		s2v(plaintext, additionalData, control);
+		if (MessageDigest.isEqual(control, Arrays.copyOf(ciphertext, BLOCK_SIZE))) {
+			return plaintext;
+		} else {
+			Arrays.fill(plaintext, (byte) 0);
+			throw new DecryptFailedException("Authentication failed");
+		}
+	}
+
+	/**
+	 * Writes the 16 byte S2V result to the beginning of the given output array.
+	 */
+	void s2v(byte[] plaintext, byte[][] additionalData, byte[] out) {
+		// D = CMAC(zero):
+		cmac.update(BYTES_ZERO, 0, BLOCK_SIZE);
+		cmac.doFinal(d, 0);
+
+		// D = dbl(D) xor CMAC(S_i):
+		for (final byte[] s : additionalData) {
+			cmac.update(s, 0, s.length);
+			cmac.doFinal(block, 0);
+			dbl(d);
+			xor(d, block);
+		}
+
+		if (plaintext.length >= BLOCK_SIZE) {
+			// T = S_n xorend D:
+			final int lastBlockOffset = plaintext.length - BLOCK_SIZE;
+			cmac.update(plaintext, 0, lastBlockOffset);
+			System.arraycopy(plaintext, lastBlockOffset, block, 0, BLOCK_SIZE);
+			xor(block, d);
+		} else {
+			// T = dbl(D) xor pad(S_n):
+			System.arraycopy(plaintext, 0, block, 0, plaintext.length);
+			block[plaintext.length] = (byte) 0x80;
+			Arrays.fill(block, plaintext.length + 1, BLOCK_SIZE, (byte) 0);
+			dbl(d);
+			xor(block, d);
+		}
+		cmac.update(block, 0, BLOCK_SIZE);
+		cmac.doFinal(out, 0);
+	}
+
+	/**
+	 * XORs the input with the keystream, whose initial counter is derived from the synthetic IV at the beginning of the given iv array.
+	 */
+	private void ctr(byte[] iv, byte[] in, int inOffset, byte[] out, int outOffset, int length) {
+		// clear out the 31st and 63rd (rightmost) bit:
+		System.arraycopy(iv, 0, ctr, 0, BLOCK_SIZE);
+		ctr[8] = (byte) (ctr[8] & 0x7F);
+		ctr[12] = (byte) (ctr[12] & 0x7F);
+
+		for (int pos = 0; pos < length; pos += BLOCK_SIZE) {
+			ctrAes.processBlock(ctr, 0, keystream, 0);
+			final int n = Math.min(BLOCK_SIZE, length - pos);
+			for (int i = 0; i < n; i++) {
+				out[outOffset + pos + i] = (byte) (in[inOffset + pos + i] ^ keystream[i]);
+			}
+			increment(ctr);
+		}
+	}
+
+	/**
+	 * Increments the rightmost 64 bits of the counter block, wrapping around on overflow.
+	 */
+	private static void increment(byte[] counter) {
+		for (int i = BLOCK_SIZE - 1; i >= 8; i--) {
+			if (++counter[i] != 0) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Doubling in GF(2^128) in place. Code taken from {@link org.bouncycastle.crypto.macs.CMac}.
+	 */
+	private static void dbl(byte[] block) {
+		int bit = 0;
+		for (int i = block.length - 1; i >= 0; i--) {
+			final int b = block[i] & 0xff;
+			block[i] = (byte) ((b << 1) | bit);
+			bit = (b >>> 7) & 1;
+		}
+
+		/*
+		 * NOTE: This construction is an attempt at a constant-time implementation.
+		 */
+		block[block.length - 1] ^= ((0xff & DOUBLING_CONST) >>> ((1 - bit) << 3));
+	}
+
+	/**
+	 * in1 = in1 xor in2
+	 */
+	private static void xor(byte[] in1, byte[] in2) {
+		for (int i = 0; i < BLOCK_SIZE; i++) {
+			in1[i] ^= in2[i];
+		}
+	}
+
+}
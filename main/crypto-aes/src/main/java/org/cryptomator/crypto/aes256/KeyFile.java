@@ -4,17 +4,27 @@ import java.io.Serializable;
 
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
-@JsonPropertyOrder(value = {"scryptSalt", "scryptCostParam", "scryptBlockSize", "keyLength", "primaryMasterKey", "hMacMasterKey"})
+@JsonPropertyOrder(value = {"version", "scryptSalt", "scryptCostParam", "scryptBlockSize", "scryptParallelization", "keyLength", "primaryMasterKey", "hMacMasterKey"})
 public class KeyFile implements Serializable {
 
 	private static final long serialVersionUID = 8578363158959619885L;
+	private int version;
 	private byte[] scryptSalt;
 	private int scryptCostParam;
 	private int scryptBlockSize;
+	private int scryptParallelization = 1; // missing in key files created before parallelization was configurable
 	private int keyLength;
 	private byte[] primaryMasterKey;
 	private byte[] hMacMasterKey;
 
+	public int getVersion() {
+		return version;
+	}
+
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
 	public byte[] getScryptSalt() {
 		return scryptSalt;
 	}
@@ -39,6 +49,14 @@ public class KeyFile implements Serializable {
 		this.scryptBlockSize = scryptBlockSize;
 	}
 
+	public int getScryptParallelization() {
+		return scryptParallelization;
+	}
+
+	public void setScryptParallelization(int scryptParallelization) {
+		this.scryptParallelization = scryptParallelization;
+	}
+
 	public int getKeyLength() {
 		return keyLength;
 	}
@@ -9,11 +9,13 @@
 package org.cryptomator.crypto.aes256;
 
 import java.io.Serializable;
+import java.util.Map;
 import java.util.UUID;
 
 import org.apache.commons.collections4.BidiMap;
 import org.apache.commons.collections4.bidimap.DualHashBidiMap;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 class LongFilenameMetadata implements Serializable {
@@ -23,21 +25,56 @@ class LongFilenameMetadata implements Serializable {
 	@JsonDeserialize(as = DualHashBidiMap.class)
 	private BidiMap<UUID, String> encryptedFilenames = new DualHashBidiMap<>();
 
+	/**
+	 * Whether entries have been added since this metadata has been read or written the last time.
+	 */
+	private transient boolean dirty;
+
 	/* Getter/Setter */
 
 	public synchronized String getEncryptedFilenameForUUID(final UUID uuid) {
 		return encryptedFilenames.get(uuid);
 	}
 
+	/**
+	 * @return The UUID of the given encrypted filename or <code>null</code>, if unknown.
+	 */
+	public synchronized UUID getUuidForEncryptedFilename(String encryptedFilename) {
+		return encryptedFilenames.getKey(encryptedFilename);
+	}
+
 	public synchronized UUID getOrCreateUuidForEncryptedFilename(String encryptedFilename) {
 		UUID uuid = encryptedFilenames.getKey(encryptedFilename);
 		if (uuid == null) {
 			uuid = UUID.randomUUID();
 			encryptedFilenames.put(uuid, encryptedFilename);
+			dirty = true;
 		}
 		return uuid;
 	}
 
+	/**
+	 * Adds all entries of the given metadata, whose UUID and encrypted filename are both unknown yet. Doesn't mark this metadata dirty, as
+	 * the added entries are already persisted elsewhere.
+	 */
+	public synchronized void merge(LongFilenameMetadata other) {
+		for (final Map.Entry<UUID, String> entry : other.getEncryptedFilenames().entrySet()) {
+			if (!encryptedFilenames.containsKey(entry.getKey()) && !encryptedFilenames.containsValue(entry.getValue())) {
+				encryptedFilenames.put(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	@JsonIgnore
+	public synchronized boolean isDirty() {
+		return dirty;
+	}
+
+	@JsonIgnore
+	public synchronized void setDirty(boolean dirty) {
+		this.dirty = dirty;
+	}
+
 	public BidiMap<UUID, String> getEncryptedFilenames() {
 		return encryptedFilenames;
 	}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.crypto.aes256;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.collections4.map.LRUMap;
+import org.cryptomator.crypto.CryptorIOSupport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Caches deserialized {@link LongFilenameMetadata} groups, so looking up a long file name neither reads nor parses its metadata file.<br/>
+ * A group only gets written, if an encrypted file name has been added to it. Each addition re-reads, modifies and writes its group while
+ * holding a lock striped by the group's metadata file, so concurrent additions to the same group can't overwrite each other, while
+ * additions to different groups run in parallel.
+ */
+class LongFilenameMetadataStore {
+
+	private static final int NUM_SHARDS = 16;
+	private static final int MAX_CACHED_GROUPS_PER_SHARD = 64;
+	private static final int NUM_LOCK_STRIPES = 64;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final Map<GroupKey, LongFilenameMetadata>[] shards;
+	private final Object[] lockStripes;
+
+	@SuppressWarnings("unchecked")
+	LongFilenameMetadataStore() {
+		this.shards = new Map[NUM_SHARDS];
+		for (int i = 0; i < NUM_SHARDS; i++) {
+			shards[i] = new LRUMap<>(MAX_CACHED_GROUPS_PER_SHARD);
+		}
+		this.lockStripes = new Object[NUM_LOCK_STRIPES];
+		for (int i = 0; i < NUM_LOCK_STRIPES; i++) {
+			lockStripes[i] = new Object();
+		}
+	}
+
+	/**
+	 * @return The encrypted file name stored for the given UUID or <code>null</code>, if unknown.
+	 */
+	public String getEncryptedFilename(CryptorIOSupport ioSupport, String metadataFile, UUID uuid) throws IOException {
+		final String cached = getGroup(ioSupport, metadataFile).getEncryptedFilenameForUUID(uuid);
+		if (cached != null) {
+			return cached;
+		}
+		synchronized (lockStripe(metadataFile)) {
+			// may have been added by someone else since we read the group:
+			final LongFilenameMetadata metadata = getGroup(ioSupport, metadataFile);
+			metadata.merge(read(ioSupport, metadataFile));
+			return metadata.getEncryptedFilenameForUUID(uuid);
+		}
+	}
+
+	/**
+	 * @return The UUID of the given encrypted file name. If there is none yet, a new one is created and written durably before returning.
+	 */
+	public UUID getOrCreateUuid(CryptorIOSupport ioSupport, String metadataFile, String encryptedFilename) throws IOException {
+		final UUID cached = getGroup(ioSupport, metadataFile).getUuidForEncryptedFilename(encryptedFilename);
+		if (cached != null) {
+			return cached;
+		}
+		synchronized (lockStripe(metadataFile)) {
+			// the group might have been evicted and reloaded, so get it again. don't overwrite entries added by someone else since we read it:
+			final LongFilenameMetadata metadata = getGroup(ioSupport, metadataFile);
+			metadata.merge(read(ioSupport, metadataFile));
+			final UUID uuid = metadata.getOrCreateUuidForEncryptedFilename(encryptedFilename);
+			if (metadata.isDirty()) {
+				try {
+					write(ioSupport, metadataFile, metadata);
+				} catch (IOException e) {
+					// the new UUID isn't persisted, so it must not be found by lock-free lookups. the next attempt re-reads the group:
+					evictGroup(ioSupport, metadataFile);
+					throw e;
+				}
+			}
+			return uuid;
+		}
+	}
+
+	public void clear() {
+		for (final Map<GroupKey, LongFilenameMetadata> shard : shards) {
+			synchronized (shard) {
+				shard.clear();
+			}
+		}
+	}
+
+	private Object lockStripe(String metadataFile) {
+		return lockStripes[(metadataFile.hashCode() & Integer.MAX_VALUE) % NUM_LOCK_STRIPES];
+	}
+
+	private Map<GroupKey, LongFilenameMetadata> shard(String metadataFile) {
+		return shards[(metadataFile.hashCode() & Integer.MAX_VALUE) % NUM_SHARDS];
+	}
+
+	private void evictGroup(CryptorIOSupport ioSupport, String metadataFile) {
+		final Map<GroupKey, LongFilenameMetadata> shard = shard(metadataFile);
+		synchronized (shard) {
+			shard.remove(new GroupKey(ioSupport, metadataFile));
+		}
+	}
+
+	private LongFilenameMetadata getGroup(CryptorIOSupport ioSupport, String metadataFile) throws IOException {
+		final GroupKey key = new GroupKey(ioSupport, metadataFile);
+		final Map<GroupKey, LongFilenameMetadata> shard = shard(metadataFile);
+		synchronized (shard) {
+			final LongFilenameMetadata cached = shard.get(key);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		final LongFilenameMetadata loaded = read(ioSupport, metadataFile);
+		synchronized (shard) {
+			final LongFilenameMetadata cached = shard.get(key);
+			if (cached != null) {
+				// loaded concurrently by someone else:
+				return cached;
+			}
+			shard.put(key, loaded);
+			return loaded;
+		}
+	}
+
+	private LongFilenameMetadata read(CryptorIOSupport ioSupport, String metadataFile) throws IOException {
+		final byte[] fileContent = ioSupport.readPathSpecificMetadata(metadataFile);
+		if (fileContent == null) {
+			return new LongFilenameMetadata();
+		} else {
+			return objectMapper.readValue(fileContent, LongFilenameMetadata.class);
+		}
+	}
+
+	private void write(CryptorIOSupport ioSupport, String metadataFile, LongFilenameMetadata metadata) throws IOException {
+		final byte[] serialized;
+		synchronized (metadata) {
+			serialized = objectMapper.writeValueAsBytes(metadata);
+			metadata.setDirty(false);
+		}
+		try {
+			ioSupport.writePathSpecificMetadata(metadataFile, serialized);
+		} catch (IOException e) {
+			metadata.setDirty(true);
+			throw e;
+		}
+	}
+
+	/**
+	 * Metadata files are relative to the {@link CryptorIOSupport} they have been read from.
+	 */
+	private static class GroupKey {
+		private final CryptorIOSupport ioSupport;
+		private final String metadataFile;
+
+		private GroupKey(CryptorIOSupport ioSupport, String metadataFile) {
+			this.ioSupport = ioSupport;
+			this.metadataFile = metadataFile;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(ioSupport) + metadataFile.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof GroupKey) {
+				final GroupKey other = (GroupKey) obj;
+				return this.ioSupport == other.ioSupport && this.metadataFile.equals(other.metadataFile);
+			} else {
+				return false;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.crypto.aes256;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.bouncycastle.crypto.PBEParametersGenerator;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.engines.Salsa20Engine;
+import org.bouncycastle.crypto.generators.PKCS5S2ParametersGenerator;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.util.Pack;
+
+/**
+ * RFC 7914 scrypt, which computes its independent lanes (the parallelization parameter p) concurrently and can be cancelled.<br/>
+ * Code taken from {@link org.bouncycastle.crypto.generators.SCrypt}, which computes all lanes sequentially on the calling thread.
+ */
+final class Scrypt {
+
+	/**
+	 * Number of SMix iterations between two checks for cancellation.
+	 */
+	private static final int CANCELLATION_CHECK_INTERVAL = 1024;
+
+	/**
+	 * Starts deriving a key. Cancelling the returned future stops all lanes, that are still running.
+	 * 
+	 * @param passphrase Gets copied, so the caller may destroy it as soon as this method returns.
+	 * @param costParam CPU/memory cost parameter N. Must be a power of 2 greater than 1.
+	 * @param blockSize Block size parameter r.
+	 * @param parallelization Parallelization parameter p. Each lane is computed by a separate task submitted to the given executor.
+	 * @return The derived key.
+	 */
+	static CompletableFuture<byte[]> scrypt(byte[] passphrase, byte[] salt, int costParam, int blockSize, int parallelization, int keyLengthInBytes, Executor executor) {
+		if (costParam <= 1 || (costParam & (costParam - 1)) != 0) {
+			throw new IllegalArgumentException("Cost parameter must be a power of 2 greater than 1.");
+		}
+		if (blockSize < 1 || parallelization < 1) {
+			throw new IllegalArgumentException("Block size and parallelization must be positive.");
+		}
+		final CompletableFuture<byte[]> result = new CompletableFuture<>();
+		final byte[] pw = Arrays.copyOf(passphrase, passphrase.length);
+		final int laneLengthInBytes = 128 * blockSize;
+		final byte[] bytes = singleIterationPbkdf2(pw, salt, parallelization * laneLengthInBytes);
+		final int[] b = new int[bytes.length / 4];
+		Pack.littleEndianToInt(bytes, 0, b);
+
+		final CompletableFuture<?>[] lanes = new CompletableFuture<?>[parallelization];
+		for (int i = 0; i < parallelization; i++) {
+			final int laneOffset = i * laneLengthInBytes / 4;
+			lanes[i] = CompletableFuture.runAsync(() -> smix(b, laneOffset, costParam, blockSize, result), executor);
+		}
+		CompletableFuture.allOf(lanes).whenComplete((nothing, exception) -> {
+			try {
+				if (exception != null) {
+					result.completeExceptionally(exception);
+				} else {
+					Pack.intToLittleEndian(b, bytes, 0);
+					result.complete(singleIterationPbkdf2(pw, bytes, keyLengthInBytes));
+				}
+			} finally {
+				Arrays.fill(pw, (byte) 0);
+				Arrays.fill(bytes, (byte) 0);
+				Arrays.fill(b, 0);
+			}
+		});
+		return result;
+	}
+
+	private static byte[] singleIterationPbkdf2(byte[] passphrase, byte[] salt, int lengthInBytes) {
+		final PBEParametersGenerator pGen = new PKCS5S2ParametersGenerator(new SHA256Digest());
+		pGen.init(passphrase, salt, 1);
+		final KeyParameter key = (KeyParameter) pGen.generateDerivedMacParameters(lengthInBytes * 8);
+		return key.getKey();
+	}
+
+	/**
+	 * Mixes the lane of b starting at the given offset in place.
+	 * 
+	 * @param result Checked for cancellation every {@value #CANCELLATION_CHECK_INTERVAL} iterations.
+	 */
+	private static void smix(int[] b, int offset, int costParam, int blockSize, CompletableFuture<?> result) {
+		final int laneLength = blockSize * 32;
+		final int[] blockX1 = new int[16];
+		final int[] blockX2 = new int[16];
+		final int[] blockY = new int[laneLength];
+		final int[] x = new int[laneLength];
+		final int[][] v = new int[costParam][];
+
+		try {
+			System.arraycopy(b, offset, x, 0, laneLength);
+
+			for (int i = 0; i < costParam; i++) {
+				checkCancellation(result, i);
+				v[i] = Arrays.copyOf(x, laneLength);
+				blockMix(x, blockX1, blockX2, blockY, blockSize);
+			}
+
+			final int mask = costParam - 1;
+			for (int i = 0; i < costParam; i++) {
+				checkCancellation(result, i);
+				final int j = x[laneLength - 16] & mask;
+				xor(x, v[j], 0, x);
+				blockMix(x, blockX1, blockX2, blockY, blockSize);
+			}
+
+			System.arraycopy(x, 0, b, offset, laneLength);
+		} finally {
+			for (final int[] vi : v) {
+				if (vi != null) {
+					Arrays.fill(vi, 0);
+				}
+			}
+			Arrays.fill(x, 0);
+			Arrays.fill(blockX1, 0);
+			Arrays.fill(blockX2, 0);
+			Arrays.fill(blockY, 0);
+		}
+	}
+
+	private static void checkCancellation(CompletableFuture<?> result, int iteration) {
+		if (iteration % CANCELLATION_CHECK_INTERVAL == 0 && result.isDone()) {
+			throw new CancellationException("Key derivation cancelled.");
+		}
+	}
+
+	private static void blockMix(int[] b, int[] x1, int[] x2, int[] y, int blockSize) {
+		System.arraycopy(b, b.length - 16, x1, 0, 16);
+
+		int bOff = 0;
+		int yOff = 0;
+		final int halfLen = b.length >>> 1;
+
+		for (int i = 2 * blockSize; i > 0; --i) {
+			xor(x1, b, bOff, x2);
+
+			Salsa20Engine.salsaCore(8, x2, x1);
+			System.arraycopy(x1, 0, y, yOff, 16);
+
+			yOff = halfLen + bOff - yOff;
+			bOff += 16;
+		}
+
+		System.arraycopy(y, 0, b, 0, y.length);
+	}
+
+	private static void xor(int[] a, int[] b, int bOff, int[] output) {
+		for (int i = output.length - 1; i >= 0; --i) {
+			output[i] = a[i] ^ b[bOff + i];
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.crypto.aes256;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Cost parameters of the scrypt key derivation, which can be calibrated to the current machine.
+ */
+final class ScryptParameters implements AesCryptographicConfiguration {
+
+	/**
+	 * Parameters used, unless calibrated. Calibration never chooses weaker parameters.
+	 */
+	static final ScryptParameters DEFAULT = new ScryptParameters(SCRYPT_COST_PARAM, SCRYPT_BLOCK_SIZE, SCRYPT_PARALLELIZATION);
+
+	/**
+	 * Upper bound of the cost parameter. Using the default block size, each lane requires 1 GiB of memory.
+	 */
+	private static final int MAX_COST_PARAM = 1 << 20;
+
+	/**
+	 * Upper bound of the parallelization parameter. Vaults get synced to other devices, which might compute lanes one after another, so
+	 * the number of lanes must not depend on the cores of the machine the vault has been created on.
+	 */
+	static final int MAX_PARALLELIZATION = 4;
+
+	/**
+	 * Number of measured derivations. The fastest one is used, as the first one includes JIT compilation.
+	 */
+	private static final int CALIBRATION_RUNS = 2;
+
+	private final int costParam;
+	private final int blockSize;
+	private final int parallelization;
+
+	ScryptParameters(int costParam, int blockSize, int parallelization) {
+		this.costParam = costParam;
+		this.blockSize = blockSize;
+		this.parallelization = parallelization;
+	}
+
+	/**
+	 * Measures the duration of a key derivation using the {@link #DEFAULT} parameters on the current machine and chooses parameters
+	 * accordingly. Blocks until the measurement is complete.
+	 * 
+	 * @param executor Pool on which the measured key derivation is computed.
+	 * @see #choose(long, long, long)
+	 */
+	static ScryptParameters calibrate(long targetDurationMillis, long maxMemoryInBytes, ForkJoinPool executor) {
+		final byte[] passphrase = new byte[SCRYPT_SALT_LENGTH];
+		final byte[] salt = new byte[SCRYPT_SALT_LENGTH];
+		long fastestMillis = Long.MAX_VALUE;
+		for (int i = 0; i < CALIBRATION_RUNS; i++) {
+			final long start = System.nanoTime();
+			Scrypt.scrypt(passphrase, salt, DEFAULT.costParam, DEFAULT.blockSize, 1, PREF_MASTER_KEY_LENGTH_IN_BITS / Byte.SIZE, executor).join();
+			fastestMillis = Math.min(fastestMillis, (System.nanoTime() - start) / 1000000);
+		}
+		return choose(Math.max(1, fastestMillis), targetDurationMillis, maxMemoryInBytes);
+	}
+
+	/**
+	 * Doubles the cost parameter as long as the estimated duration stays below the target duration and a lane fits into the memory limit.
+	 * Afterwards lanes are added as long as computing all of them one after another still stays below the target duration, so unlocking
+	 * doesn't take longer on devices with fewer cores. This only adds lanes, if the cost parameter has reached a limit.
+	 * 
+	 * @param defaultDurationMillis Duration of a single lane using the {@link #DEFAULT} cost parameter and block size.
+	 * @return Parameters, which are never weaker than the {@link #DEFAULT} parameters.
+	 */
+	static ScryptParameters choose(long defaultDurationMillis, long targetDurationMillis, long maxMemoryInBytes) {
+		int costParam = DEFAULT.costParam;
+		while (costParam < MAX_COST_PARAM //
+				&& defaultDurationMillis * (costParam * 2L / DEFAULT.costParam) <= targetDurationMillis //
+				&& laneMemoryInBytes(costParam * 2, DEFAULT.blockSize) <= maxMemoryInBytes) {
+			costParam *= 2;
+		}
+		final long laneDurationMillis = defaultDurationMillis * (costParam / DEFAULT.costParam);
+		final long lanesFittingIntoTarget = targetDurationMillis / laneDurationMillis;
+		final long lanesFittingIntoMemory = maxMemoryInBytes / laneMemoryInBytes(costParam, DEFAULT.blockSize);
+		final long lanes = Math.min(MAX_PARALLELIZATION, Math.min(lanesFittingIntoTarget, lanesFittingIntoMemory));
+		final int parallelization = (int) Math.max(DEFAULT.parallelization, lanes);
+		return new ScryptParameters(costParam, DEFAULT.blockSize, parallelization);
+	}
+
+	private static long laneMemoryInBytes(int costParam, int blockSize) {
+		return 128L * blockSize * costParam;
+	}
+
+	/**
+	 * @return <code>true</code> if no parameter is lower and at least one is higher than the corresponding parameter of the other
+	 *         parameters.
+	 */
+	boolean isStrongerThan(ScryptParameters other) {
+		final boolean noneLower = costParam >= other.costParam && blockSize >= other.blockSize && parallelization >= other.parallelization;
+		final boolean anyHigher = costParam > other.costParam || blockSize > other.blockSize || parallelization > other.parallelization;
+		return noneLower && anyHigher;
+	}
+
+	/* Getter */
+
+	int getCostParam() {
+		return costParam;
+	}
+
+	int getBlockSize() {
+		return blockSize;
+	}
+
+	int getParallelization() {
+		return parallelization;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("N=%d, r=%d, p=%d", costParam, blockSize, parallelization);
+	}
+
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sebastian Stenzel
+ * This file is licensed under the terms of the MIT license.
+ * See the LICENSE.txt file for more info.
+ * 
+ * Contributors:
+ *     Sebastian Stenzel - initial API and implementation
+ ******************************************************************************/
+package org.cryptomator.crypto.aes256;
+
+import java.lang.ref.WeakReference;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Per-thread cache of the Cipher, Mac and SIV instances used for file content and file name en- and decryption, bound to one pair of
+ * master keys. Provider
+ * lookup and key initialization are expensive compared to en- or decrypting a single block, e.g. when determining the size of each file
+ * of a directory listing.<br/>
+ * Instances returned by this class must not be passed to other threads. Neither must a thread obtain a second instance of the same kind,
+ * while still using the first one. Whenever the master keys change, the old instance must be {@link #destroy() destroyed} and a new one
+ * must be created.
+ */
+final class ThreadLocalPrimitives implements AesCryptographicConfiguration {
+
+	private final SecretKey aesKey;
+	private final SecretKey macKey;
+	private final ThreadLocal<Cipher> ctrCiphers = ThreadLocal.withInitial(() -> register(newCipher(AES_CTR_CIPHER)));
+	private final ThreadLocal<Cipher> ecbEncryptionCiphers = ThreadLocal.withInitial(() -> register(newEcbCipher(Cipher.ENCRYPT_MODE)));
+	private final ThreadLocal<Cipher> ecbDecryptionCiphers = ThreadLocal.withInitial(() -> register(newEcbCipher(Cipher.DECRYPT_MODE)));
+	private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(() -> register(newHmacSha256()));
+	private final ThreadLocal<AesSivCipher> sivCiphers = ThreadLocal.withInitial(() -> register(newAesSivCipher()));
+
+	/**
+	 * All primitives created by any thread, so they can be destroyed, even though thread-local values can only be removed by their thread.
+	 * Primitives of threads, which have died in the meantime, are destroyed and forgotten whenever a new primitive is created.
+	 */
+	private final Queue<Registration> registrations = new ConcurrentLinkedQueue<>();
+
+	ThreadLocalPrimitives(SecretKey aesKey, SecretKey macKey) {
+		this.aesKey = aesKey;
+		this.macKey = macKey;
+	}
+
+	/**
+	 * @return AES-CTR cipher of the current thread, initialized with the given IV.
+	 */
+	Cipher aesCtrCipher(byte[] iv, int cipherMode) {
+		final Cipher cipher = ctrCiphers.get();
+		try {
+			cipher.init(cipherMode, aesKey, new IvParameterSpec(iv));
+			return cipher;
+		} catch (InvalidKeyException ex) {
+			throw new IllegalArgumentException("Invalid key.", ex);
+		} catch (InvalidAlgorithmParameterException ex) {
+			throw new IllegalStateException("Algorithm should accept an IV.", ex);
+		}
+	}
+
+	/**
+	 * @return AES-ECB cipher of the current thread. As {@link Cipher#doFinal()} resets the cipher, it is ready to use without further
+	 *         initialization.
+	 */
+	Cipher aesEcbCipher(int cipherMode) {
+		switch (cipherMode) {
+		case Cipher.ENCRYPT_MODE:
+			return ecbEncryptionCiphers.get();
+		case Cipher.DECRYPT_MODE:
+			return ecbDecryptionCiphers.get();
+		default:
+			throw new IllegalArgumentException("Unsupported cipher mode " + cipherMode);
+		}
+	}
+
+	/**
+	 * @return HmacSHA256 of the current thread, reset to its initial state.
+	 */
+	Mac hmacSha256() {
+		final Mac mac = macs.get();
+		mac.reset();
+		return mac;
+	}
+
+	/**
+	 * @return SIV cipher of the current thread with pre-expanded keys.
+	 */
+	AesSivCipher aesSivCipher() {
+		return sivCiphers.get();
+	}
+
+	/**
+	 * Re-initializes all primitives created so far with all-zero keys, so they no longer reference key material derived from the master
+	 * keys. Must be invoked before the master keys change and while no other thread is using any of the primitives.
+	 */
+	void destroy() {
+		for (Registration registration = registrations.poll(); registration != null; registration = registrations.poll()) {
+			destroy(registration.primitive);
+		}
+	}
+
+	private <T> T register(T primitive) {
+		for (final Registration registration : registrations) {
+			// only the thread, which succeeds in removing a registration, destroys its primitive:
+			if (!registration.isOwnerAlive() && registrations.remove(registration)) {
+				destroy(registration.primitive);
+			}
+		}
+		registrations.add(new Registration(Thread.currentThread(), primitive));
+		return primitive;
+	}
+
+	private static void destroy(Object primitive) {
+		try {
+			if (primitive instanceof Cipher) {
+				((Cipher) primitive).init(Cipher.ENCRYPT_MODE, new SecretKeySpec(new byte[AES_BLOCK_LENGTH], AES_KEY_ALGORITHM));
+			} else if (primitive instanceof Mac) {
+				((Mac) primitive).init(new SecretKeySpec(new byte[AES_BLOCK_LENGTH], HMAC_KEY_ALGORITHM));
+			} else if (primitive instanceof AesSivCipher) {
+				((AesSivCipher) primitive).destroy();
+			}
+		} catch (InvalidKeyException e) {
+			throw new IllegalStateException("A 128 bit key is always valid.", e);
+		}
+	}
+
+	private Cipher newCipher(String transformation) {
+		try {
+			return Cipher.getInstance(transformation);
+		} catch (NoSuchAlgorithmException | NoSuchPaddingException ex) {
+			throw new IllegalStateException("Algorithm/Padding should exist.", ex);
+		}
+	}
+
+	private Cipher newEcbCipher(int cipherMode) {
+		final Cipher cipher = newCipher(AES_ECB_CIPHER);
+		try {
+			cipher.init(cipherMode, aesKey);
+			return cipher;
+		} catch (InvalidKeyException ex) {
+			throw new IllegalArgumentException("Invalid key.", ex);
+		}
+	}
+
+	private Mac newHmacSha256() {
+		try {
+			final Mac mac = Mac.getInstance(HMAC_KEY_ALGORITHM);
+			mac.init(macKey);
+			return mac;
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError("Every implementation of the Java platform is required to support HmacSHA256.", e);
+		} catch (InvalidKeyException e) {
+			throw new IllegalArgumentException("Invalid key", e);
+		}
+	}
+
+	private AesSivCipher newAesSivCipher() {
+		final byte[] aesKeyBytes = aesKey.getEncoded();
+		final byte[] macKeyBytes = macKey.getEncoded();
+		if (aesKeyBytes == null || macKeyBytes == null) {
+			throw new IllegalArgumentException("Can't get bytes of given key.");
+		}
+		try {
+			return new AesSivCipher(aesKeyBytes, macKeyBytes);
+		} catch (InvalidKeyException e) {
+			throw new IllegalArgumentException("Invalid key.", e);
+		} finally {
+			Arrays.fill(aesKeyBytes, (byte) 0);
+			Arrays.fill(macKeyBytes, (byte) 0);
+		}
+	}
+
+	/**
+	 * A primitive and the thread it has been created for. The thread is only weakly referenced, so pooled threads, which die, can be
+	 * collected.
+	 */
+	private static final class Registration {
+
+		private final WeakReference<Thread> owner;
+		private final Object primitive;
+
+		private Registration(Thread owner, Object primitive) {
+			this.owner = new WeakReference<>(owner);
+			this.primitive = primitive;
+		}
+
+		private boolean isOwnerAlive() {
+			final Thread thread = owner.get();
+			return thread != null && thread.isAlive();
+		}
+
+	}
+
+}
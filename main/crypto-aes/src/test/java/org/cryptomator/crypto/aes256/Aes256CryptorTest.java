@@ -14,18 +14,24 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.io.IOUtils;
 import org.cryptomator.crypto.CryptorIOSupport;
 import org.cryptomator.crypto.exceptions.DecryptFailedException;
+import org.cryptomator.crypto.exceptions.MacAuthenticationFailedException;
 import org.cryptomator.crypto.exceptions.UnsupportedKeyLengthException;
 import org.cryptomator.crypto.exceptions.WrongPasswordException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 public class Aes256CryptorTest {
 
 	@Test
@@ -69,6 +75,50 @@ public class Aes256CryptorTest {
 		}
 	}
 
+	@Test
+	public void testAsyncMasterKeyDecryption() throws InterruptedException, ExecutionException {
+		final String pw = "asd";
+		final Aes256Cryptor cryptor = new Aes256Cryptor();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cryptor.encryptMasterKeyAsync(out, pw).get();
+		cryptor.swipeSensitiveData();
+
+		final Aes256Cryptor decryptor = new Aes256Cryptor();
+		decryptor.decryptMasterKeyAsync(new ByteArrayInputStream(out.toByteArray()), pw).get();
+
+		try {
+			decryptor.decryptMasterKeyAsync(new ByteArrayInputStream(out.toByteArray()), "foo").get();
+			Assert.fail("should not succeed.");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof WrongPasswordException);
+		}
+	}
+
+	@Test
+	public void testCalibratedKeyDerivationParametersArePersisted() throws IOException, InterruptedException, ExecutionException, DecryptFailedException, WrongPasswordException, UnsupportedKeyLengthException {
+		final String pw = "asd";
+		final long maxMemory = 64L << 20;
+		final Aes256Cryptor cryptor = new Aes256Cryptor();
+		cryptor.calibrateKeyDerivation(100, maxMemory).get();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cryptor.encryptMasterKey(out, pw);
+		final KeyFile keyFile = new ObjectMapper().readValue(out.toByteArray(), KeyFile.class);
+		// parallel lanes need N * r * 128 bytes each:
+		Assert.assertTrue(keyFile.getScryptParallelization() >= 1);
+		Assert.assertTrue(keyFile.getScryptParallelization() <= ScryptParameters.MAX_PARALLELIZATION);
+		Assert.assertTrue((long) keyFile.getScryptCostParam() * keyFile.getScryptBlockSize() * 128 * keyFile.getScryptParallelization() <= maxMemory);
+
+		// re-encrypting a decrypted master key keeps its parameters:
+		final Aes256Cryptor decryptor = new Aes256Cryptor();
+		decryptor.decryptMasterKey(new ByteArrayInputStream(out.toByteArray()), pw);
+		final ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+		decryptor.encryptMasterKey(out2, pw);
+		final KeyFile keyFile2 = new ObjectMapper().readValue(out2.toByteArray(), KeyFile.class);
+		Assert.assertEquals(keyFile.getScryptCostParam(), keyFile2.getScryptCostParam());
+		Assert.assertEquals(keyFile.getScryptBlockSize(), keyFile2.getScryptBlockSize());
+		Assert.assertEquals(keyFile.getScryptParallelization(), keyFile2.getScryptParallelization());
+	}
+
 	@Test
 	public void testIntegrityAuthentication() throws IOException, DecryptFailedException {
 		// our test plaintext data:
@@ -79,7 +129,7 @@ public class Aes256CryptorTest {
 		final Aes256Cryptor cryptor = new Aes256Cryptor();
 
 		// encrypt:
-		final ByteBuffer encryptedData = ByteBuffer.allocate(96);
+		final ByteBuffer encryptedData = ByteBuffer.allocate(128);
 		final SeekableByteChannel encryptedOut = new ByteBufferBackedSeekableChannel(encryptedData);
 		cryptor.encryptFile(plaintextIn, encryptedOut);
 		IOUtils.closeQuietly(plaintextIn);
@@ -111,7 +161,7 @@ public class Aes256CryptorTest {
 		final Aes256Cryptor cryptor = new Aes256Cryptor();
 
 		// encrypt:
-		final ByteBuffer encryptedData = ByteBuffer.allocate(96);
+		final ByteBuffer encryptedData = ByteBuffer.allocate(128);
 		final SeekableByteChannel encryptedOut = new ByteBufferBackedSeekableChannel(encryptedData);
 		cryptor.encryptFile(plaintextIn, encryptedOut);
 		IOUtils.closeQuietly(plaintextIn);
@@ -143,7 +193,7 @@ public class Aes256CryptorTest {
 		final Aes256Cryptor cryptor = new Aes256Cryptor();
 
 		// encrypt:
-		final ByteBuffer encryptedData = ByteBuffer.allocate(96);
+		final ByteBuffer encryptedData = ByteBuffer.allocate(128);
 		final SeekableByteChannel encryptedOut = new ByteBufferBackedSeekableChannel(encryptedData);
 		cryptor.encryptFile(plaintextIn, encryptedOut);
 		IOUtils.closeQuietly(plaintextIn);
@@ -168,6 +218,70 @@ public class Aes256CryptorTest {
 		Assert.assertArrayEquals(plaintextData, result);
 	}
 
+	@Test
+	public void testDecryptionAfterMasterKeyChange() throws IOException, DecryptFailedException, WrongPasswordException, UnsupportedKeyLengthException {
+		final String pw = "asd";
+		final byte[] plaintextData = "Hello World".getBytes();
+
+		// encrypt with first cryptor:
+		final Aes256Cryptor cryptor = new Aes256Cryptor();
+		final ByteArrayOutputStream masterKey = new ByteArrayOutputStream();
+		cryptor.encryptMasterKey(masterKey, pw);
+		final ByteBuffer encryptedData = ByteBuffer.allocate(128);
+		cryptor.encryptFile(new ByteArrayInputStream(plaintextData), new ByteBufferBackedSeekableChannel(encryptedData));
+		encryptedData.position(0);
+
+		// use second cryptor with its own keys first, then load the masterkey of the first one:
+		final Aes256Cryptor decryptor = new Aes256Cryptor();
+		final ByteBuffer otherEncryptedData = ByteBuffer.allocate(128);
+		decryptor.encryptFile(new ByteArrayInputStream(plaintextData), new ByteBufferBackedSeekableChannel(otherEncryptedData));
+		otherEncryptedData.position(0);
+		Assert.assertTrue(decryptor.isAuthentic(new ByteBufferBackedSeekableChannel(otherEncryptedData)));
+		decryptor.decryptMasterKey(new ByteArrayInputStream(masterKey.toByteArray()), pw);
+
+		// decrypt:
+		final SeekableByteChannel encryptedIn = new ByteBufferBackedSeekableChannel(encryptedData);
+		Assert.assertTrue(decryptor.isAuthentic(encryptedIn));
+		Assert.assertEquals(plaintextData.length, decryptor.decryptedContentLength(encryptedIn).longValue());
+		final ByteArrayOutputStream plaintextOut = new ByteArrayOutputStream();
+		decryptor.decryptFile(encryptedIn, plaintextOut);
+		Assert.assertArrayEquals(plaintextData, plaintextOut.toByteArray());
+	}
+
+	@Test
+	public void testEncryptionAndDecryptionOfMultipleChunks() throws IOException, DecryptFailedException {
+		// our test plaintext data, each chunk containing different data:
+		final int numChunks = 50;
+		final byte[] plaintextData = new byte[numChunks * AesCryptographicConfiguration.CONTENT_CHUNK_SIZE - 123];
+		for (int i = 0; i < plaintextData.length; i++) {
+			plaintextData[i] = (byte) (i / AesCryptographicConfiguration.CONTENT_CHUNK_SIZE);
+		}
+		final InputStream plaintextIn = new ByteArrayInputStream(plaintextData);
+
+		// init cryptor:
+		final Aes256Cryptor cryptor = new Aes256Cryptor();
+
+		// encrypt:
+		final ByteBuffer encryptedData = ByteBuffer.allocate(plaintextData.length + numChunks * 48 + 64);
+		final SeekableByteChannel encryptedOut = new ByteBufferBackedSeekableChannel(encryptedData);
+		final Long numEncryptedBytes = cryptor.encryptFile(plaintextIn, encryptedOut);
+		IOUtils.closeQuietly(plaintextIn);
+		IOUtils.closeQuietly(encryptedOut);
+		Assert.assertEquals(plaintextData.length, numEncryptedBytes.longValue());
+
+		encryptedData.position(0);
+
+		// decrypt:
+		final SeekableByteChannel encryptedIn = new ByteBufferBackedSeekableChannel(encryptedData);
+		Assert.assertTrue(cryptor.isAuthentic(encryptedIn));
+		final ByteArrayOutputStream plaintextOut = new ByteArrayOutputStream();
+		final Long numDecryptedBytes = cryptor.decryptFile(encryptedIn, plaintextOut);
+		IOUtils.closeQuietly(encryptedIn);
+		IOUtils.closeQuietly(plaintextOut);
+		Assert.assertEquals(plaintextData.length, numDecryptedBytes.longValue());
+		Assert.assertArrayEquals(plaintextData, plaintextOut.toByteArray());
+	}
+
 	@Test
 	public void testPartialDecryption() throws IOException, DecryptFailedException, WrongPasswordException, UnsupportedKeyLengthException {
 		// our test plaintext data:
@@ -204,6 +318,50 @@ public class Aes256CryptorTest {
 		Assert.assertArrayEquals(expected, result);
 	}
 
+	@Test
+	public void testPartialDecryptionOnlyAuthenticatesRequestedChunks() throws IOException, DecryptFailedException {
+		// our test plaintext data spanning multiple chunks:
+		final byte[] plaintextData = new byte[4 * AesCryptographicConfiguration.CONTENT_CHUNK_SIZE + 42];
+		Arrays.fill(plaintextData, (byte) 0x42);
+		final InputStream plaintextIn = new ByteArrayInputStream(plaintextData);
+
+		// init cryptor:
+		final Aes256Cryptor cryptor = new Aes256Cryptor();
+
+		// encrypt:
+		final ByteBuffer encryptedData = ByteBuffer.allocate(plaintextData.length + 1024);
+		final SeekableByteChannel encryptedOut = new ByteBufferBackedSeekableChannel(encryptedData);
+		cryptor.encryptFile(plaintextIn, encryptedOut);
+		IOUtils.closeQuietly(plaintextIn);
+		IOUtils.closeQuietly(encryptedOut);
+
+		// toggle one bit in the third chunk:
+		final int posInThirdChunk = AesCryptographicConfiguration.CONTENT_HEADER_LENGTH + 2 * AesCryptographicConfiguration.ENCRYPTED_CONTENT_CHUNK_SIZE + 100;
+		encryptedData.put(posInThirdChunk, (byte) (encryptedData.get(posInThirdChunk) ^ 0x01));
+		encryptedData.position(0);
+
+		// range within the first two chunks is still authentic:
+		final SeekableByteChannel encryptedIn = new ByteBufferBackedSeekableChannel(encryptedData);
+		final ByteArrayOutputStream plaintextOut = new ByteArrayOutputStream();
+		final Long numDecryptedBytes = cryptor.decryptRange(encryptedIn, plaintextOut, 1000, AesCryptographicConfiguration.CONTENT_CHUNK_SIZE);
+		Assert.assertEquals(AesCryptographicConfiguration.CONTENT_CHUNK_SIZE, numDecryptedBytes.longValue());
+		Assert.assertArrayEquals(Arrays.copyOfRange(plaintextData, 1000, 1000 + AesCryptographicConfiguration.CONTENT_CHUNK_SIZE), plaintextOut.toByteArray());
+
+		// last chunk is still authentic and range gets truncated at EOF:
+		final ByteArrayOutputStream tailOut = new ByteArrayOutputStream();
+		final Long numTailBytes = cryptor.decryptRange(encryptedIn, tailOut, plaintextData.length - 50, 100);
+		Assert.assertEquals(50, numTailBytes.longValue());
+
+		// range including the third chunk must fail:
+		try {
+			cryptor.decryptRange(encryptedIn, new ByteArrayOutputStream(), 2 * AesCryptographicConfiguration.CONTENT_CHUNK_SIZE + 10, 10);
+			Assert.fail("should not succeed.");
+		} catch (MacAuthenticationFailedException e) {
+			// expected
+		}
+		Assert.assertFalse(cryptor.isAuthentic(encryptedIn));
+	}
+
 	@Test
 	public void testEncryptionOfFilenames() throws IOException, DecryptFailedException {
 		final CryptorIOSupport ioSupportMock = new CryptoIOSupportMock();
@@ -235,13 +393,49 @@ public class Aes256CryptorTest {
 		Assert.assertEquals(originalPath3, decryptedPath3);
 	}
 
+	@Test
+	public void testBatchDecryptionOfFilenames() throws IOException, DecryptFailedException {
+		final CryptorIOSupport ioSupportMock = new CryptoIOSupportMock();
+		final Aes256Cryptor cryptor = new Aes256Cryptor();
+
+		final String str50chars = "aaaaaaaaaabbbbbbbbbbccccccccccddddddddddeeeeeeeeee";
+		final List<String> originalPaths = Arrays.asList("foo/bar", "foo/baz", "foo/" + str50chars + str50chars + str50chars + str50chars + str50chars, "foo");
+		final List<String> encryptedPaths = new ArrayList<>();
+		for (final String originalPath : originalPaths) {
+			encryptedPaths.add(cryptor.encryptPath(originalPath, '/', '/', ioSupportMock));
+		}
+		final String encryptedParent = encryptedPaths.get(3);
+		encryptedPaths.add(encryptedParent + "/AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA.aes");
+
+		final List<String> decryptedPaths = cryptor.decryptPaths(encryptedPaths, '/', '/', ioSupportMock);
+		Assert.assertEquals(originalPaths, decryptedPaths.subList(0, 4));
+		Assert.assertNull(decryptedPaths.get(4));
+	}
+
+	@Test
+	public void testLongFilenameMetadataOnlyWrittenOnChange() throws IOException, DecryptFailedException {
+		final CryptoIOSupportMock ioSupportMock = new CryptoIOSupportMock();
+		final Aes256Cryptor cryptor = new Aes256Cryptor();
+
+		final String str50chars = "aaaaaaaaaabbbbbbbbbbccccccccccddddddddddeeeeeeeeee";
+		final String longName = str50chars + str50chars + str50chars + str50chars + str50chars;
+		final String encryptedName1 = cryptor.encryptPath(longName, '/', '/', ioSupportMock);
+		Assert.assertEquals(1, ioSupportMock.writes);
+		final String encryptedName2 = cryptor.encryptPath(longName, '/', '/', ioSupportMock);
+		Assert.assertEquals(encryptedName1, encryptedName2);
+		Assert.assertEquals(longName, cryptor.decryptPath(encryptedName1, '/', '/', ioSupportMock));
+		Assert.assertEquals(1, ioSupportMock.writes);
+	}
+
 	private static class CryptoIOSupportMock implements CryptorIOSupport {
 
 		private final Map<String, byte[]> map = new HashMap<>();
+		private int writes;
 
 		@Override
 		public void writePathSpecificMetadata(String encryptedPath, byte[] encryptedMetadata) {
 			map.put(encryptedPath, encryptedMetadata);
+			writes++;
 		}
 
 		@Override
@@ -0,0 +1,68 @@
+package org.cryptomator.crypto.aes256;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.cryptomator.crypto.CryptorIOSupport;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LongFilenameMetadataStoreTest {
+
+	@Test
+	public void testUuidIsPersistedWhenCreated() throws IOException {
+		final InMemoryIOSupport ioSupport = new InMemoryIOSupport(0);
+		final LongFilenameMetadataStore store = new LongFilenameMetadataStore();
+		final UUID uuid = store.getOrCreateUuid(ioSupport, "AB.meta", "longname");
+		Assert.assertEquals(uuid, store.getOrCreateUuid(ioSupport, "AB.meta", "longname"));
+		Assert.assertEquals("longname", new LongFilenameMetadataStore().getEncryptedFilename(ioSupport, "AB.meta", uuid));
+	}
+
+	@Test
+	public void testUnpersistedUuidIsNotReturned() throws IOException {
+		final InMemoryIOSupport ioSupport = new InMemoryIOSupport(1);
+		final LongFilenameMetadataStore store = new LongFilenameMetadataStore();
+		try {
+			store.getOrCreateUuid(ioSupport, "AB.meta", "longname");
+			Assert.fail("first write should fail.");
+		} catch (IOException e) {
+			// expected
+		}
+
+		// the next lookup must create a UUID again and persist it:
+		final UUID uuid = store.getOrCreateUuid(ioSupport, "AB.meta", "longname");
+		Assert.assertEquals(1, ioSupport.successfulWrites);
+		Assert.assertEquals("longname", new LongFilenameMetadataStore().getEncryptedFilename(ioSupport, "AB.meta", uuid));
+		Assert.assertEquals(uuid, store.getOrCreateUuid(ioSupport, "AB.meta", "longname"));
+	}
+
+	private static class InMemoryIOSupport implements CryptorIOSupport {
+
+		private final Map<String, byte[]> files = new HashMap<>();
+		private int failingWrites;
+		private int successfulWrites;
+
+		private InMemoryIOSupport(int failingWrites) {
+			this.failingWrites = failingWrites;
+		}
+
+		@Override
+		public void writePathSpecificMetadata(String encryptedPath, byte[] encryptedMetadata) throws IOException {
+			if (failingWrites > 0) {
+				failingWrites--;
+				throw new IOException("Disk full.");
+			}
+			files.put(encryptedPath, encryptedMetadata);
+			successfulWrites++;
+		}
+
+		@Override
+		public byte[] readPathSpecificMetadata(String encryptedPath) throws IOException {
+			return files.get(encryptedPath);
+		}
+
+	}
+
+}
@@ -0,0 +1,50 @@
+package org.cryptomator.crypto.aes256;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScryptParametersTest {
+
+	@Test
+	public void testChooseWithinTargetDuration() {
+		// 50ms per default derivation, 400ms target, plenty of memory:
+		final ScryptParameters params = ScryptParameters.choose(50, 400, 1L << 30);
+		Assert.assertEquals(ScryptParameters.DEFAULT.getCostParam() * 8, params.getCostParam());
+		Assert.assertEquals(ScryptParameters.DEFAULT.getBlockSize(), params.getBlockSize());
+		Assert.assertEquals(1, params.getParallelization());
+	}
+
+	@Test
+	public void testChooseWithinMemoryLimit() {
+		// a single lane using the default parameters requires 16 MiB:
+		final ScryptParameters params = ScryptParameters.choose(1, 1000, 40L << 20);
+		Assert.assertEquals(ScryptParameters.DEFAULT.getCostParam() * 2, params.getCostParam());
+		Assert.assertEquals(1, params.getParallelization());
+	}
+
+	@Test
+	public void testLanesFitIntoTargetDurationWhenComputedSequentially() {
+		// the cost parameter reaches its limit after 640ms, so there is no time left for another lane:
+		final ScryptParameters params = ScryptParameters.choose(10, 1000, 8L << 30);
+		Assert.assertEquals(ScryptParameters.DEFAULT.getCostParam() * 64, params.getCostParam());
+		Assert.assertEquals(1, params.getParallelization());
+	}
+
+	@Test
+	public void testParallelizationIsLimited() {
+		// the cost parameter reaches its limit after 64ms, leaving time for 15 lanes:
+		final ScryptParameters params = ScryptParameters.choose(1, 1000, 8L << 30);
+		Assert.assertEquals(ScryptParameters.DEFAULT.getCostParam() * 64, params.getCostParam());
+		Assert.assertEquals(ScryptParameters.MAX_PARALLELIZATION, params.getParallelization());
+	}
+
+	@Test
+	public void testNeverWeakerThanDefault() {
+		final ScryptParameters params = ScryptParameters.choose(5000, 100, 1L << 20);
+		Assert.assertEquals(ScryptParameters.DEFAULT.getCostParam(), params.getCostParam());
+		Assert.assertEquals(ScryptParameters.DEFAULT.getParallelization(), params.getParallelization());
+		Assert.assertFalse(params.isStrongerThan(ScryptParameters.DEFAULT));
+		Assert.assertFalse(ScryptParameters.DEFAULT.isStrongerThan(params));
+	}
+
+}
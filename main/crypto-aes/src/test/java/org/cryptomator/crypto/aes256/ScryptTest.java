@@ -0,0 +1,50 @@
+package org.cryptomator.crypto.aes256;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.bouncycastle.crypto.generators.SCrypt;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScryptTest {
+
+	/**
+	 * Official RFC 7914 test vector taken from https://tools.ietf.org/html/rfc7914#section-12
+	 */
+	@Test
+	public void testRfcTestVector() throws DecoderException, InterruptedException, ExecutionException {
+		final byte[] expected = Hex.decodeHex(("fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b373162" //
+				+ "2eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640").toCharArray());
+		final byte[] passphrase = "password".getBytes(StandardCharsets.US_ASCII);
+		final byte[] salt = "NaCl".getBytes(StandardCharsets.US_ASCII);
+		final byte[] result = Scrypt.scrypt(passphrase, salt, 1024, 8, 16, 64, ForkJoinPool.commonPool()).get();
+		Assert.assertArrayEquals(expected, result);
+	}
+
+	@Test
+	public void testSameResultAsSequentialImplementation() throws InterruptedException, ExecutionException {
+		final byte[] passphrase = "asd".getBytes(StandardCharsets.US_ASCII);
+		final byte[] salt = {1, 2, 3, 4, 5, 6, 7, 8};
+		for (int p = 1; p <= 4; p++) {
+			final byte[] expected = SCrypt.generate(passphrase, salt, 1 << 10, 8, p, 32);
+			final byte[] result = Scrypt.scrypt(passphrase, salt, 1 << 10, 8, p, 32, ForkJoinPool.commonPool()).get();
+			Assert.assertArrayEquals(expected, result);
+		}
+	}
+
+	@Test(expected = CancellationException.class)
+	public void testCancellation() throws InterruptedException, ExecutionException {
+		final byte[] passphrase = "asd".getBytes(StandardCharsets.US_ASCII);
+		final byte[] salt = {1, 2, 3, 4, 5, 6, 7, 8};
+		final CompletableFuture<byte[]> result = Scrypt.scrypt(passphrase, salt, 1 << 20, 8, 1, 32, ForkJoinPool.commonPool());
+		result.cancel(true);
+		result.get();
+	}
+
+}
@@ -0,0 +1,46 @@
+package org.cryptomator.crypto.aes256;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ThreadLocalPrimitivesTest {
+
+	private static final byte[] PLAINTEXT = {1, 2, 3, 4};
+
+	@Test
+	public void testPrimitivesOfDeadThreadsAreDestroyed() throws InterruptedException {
+		final SecretKey aesKey = new SecretKeySpec(new byte[16], "AES");
+		final SecretKey macKey = new SecretKeySpec(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16}, "HmacSHA256");
+		final ThreadLocalPrimitives primitives = new ThreadLocalPrimitives(aesKey, macKey);
+
+		final AtomicReference<AesSivCipher> deadThreadsCipher = new AtomicReference<>();
+		final Thread thread = new Thread(() -> deadThreadsCipher.set(primitives.aesSivCipher()));
+		thread.start();
+		thread.join();
+		final byte[] ciphertextBeforeDestruction = deadThreadsCipher.get().encrypt(PLAINTEXT);
+
+		// creating a primitive for this thread prunes the registrations of the dead thread:
+		final AesSivCipher cipher = primitives.aesSivCipher();
+		Assert.assertArrayEquals(ciphertextBeforeDestruction, cipher.encrypt(PLAINTEXT));
+		Assert.assertFalse(Arrays.equals(ciphertextBeforeDestruction, deadThreadsCipher.get().encrypt(PLAINTEXT)));
+	}
+
+	@Test
+	public void testDestroy() {
+		final SecretKey aesKey = new SecretKeySpec(new byte[16], "AES");
+		final SecretKey macKey = new SecretKeySpec(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16}, "HmacSHA256");
+		final ThreadLocalPrimitives primitives = new ThreadLocalPrimitives(aesKey, macKey);
+
+		final AesSivCipher cipher = primitives.aesSivCipher();
+		final byte[] ciphertextBeforeDestruction = cipher.encrypt(PLAINTEXT);
+		primitives.destroy();
+		Assert.assertFalse(Arrays.equals(ciphertextBeforeDestruction, cipher.encrypt(PLAINTEXT)));
+	}
+
+}
@@ -14,9 +14,13 @@ import java.io.OutputStream;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.DirectoryStream.Filter;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.cryptomator.crypto.exceptions.DecryptFailedException;
+import org.cryptomator.crypto.exceptions.MacAuthenticationFailedException;
 import org.cryptomator.crypto.exceptions.UnsupportedKeyLengthException;
+import org.cryptomator.crypto.exceptions.UnsupportedVaultException;
 import org.cryptomator.crypto.exceptions.WrongPasswordException;
 
 /**
@@ -37,9 +41,38 @@ public interface Cryptor extends SensitiveDataSwipeListener {
 	 *             password. In this case a DecryptFailedException will be thrown.
 	 * @throws UnsupportedKeyLengthException If the masterkey has been encrypted with a higher key length than supported by the system. In
 	 *             this case Java JCE needs to be installed.
+	 * @throws UnsupportedVaultException If the masterkey file belongs to a vault of an incompatible version.
 	 */
 	void decryptMasterKey(InputStream in, CharSequence password) throws DecryptFailedException, WrongPasswordException, UnsupportedKeyLengthException, IOException;
 
+	/**
+	 * Like {@link #encryptMasterKey(OutputStream, CharSequence)}, but the expensive key derivation doesn't block the calling thread.
+	 * Cancelling the returned future aborts the key derivation.
+	 * The password isn't referenced after this method returns, so it may be swiped immediately.
+	 * 
+	 * @return Future completed after the result has been written. Completes exceptionally with an {@link IOException} if writing failed.
+	 */
+	CompletableFuture<Void> encryptMasterKeyAsync(OutputStream out, CharSequence password);
+
+	/**
+	 * Like {@link #decryptMasterKey(InputStream, CharSequence)}, but the expensive key derivation doesn't block the calling thread.
+	 * Cancelling the returned future aborts the key derivation and leaves the current masterKey unchanged.
+	 * The password isn't referenced after this method returns, so it may be swiped immediately.
+	 * 
+	 * @return Future completed after the masterKey has been decrypted. Completes exceptionally with the exceptions thrown by
+	 *         {@link #decryptMasterKey(InputStream, CharSequence)}.
+	 */
+	CompletableFuture<Void> decryptMasterKeyAsync(InputStream in, CharSequence password);
+
+	/**
+	 * Benchmarks the key derivation on the current machine and chooses its parameters, so deriving a key takes about the given duration
+	 * without exceeding the given amount of memory. Parameters weaker than the current ones are never chosen, i.e. the parameters of a
+	 * decrypted masterKey can only be upgraded. Takes effect the next time the masterKey gets encrypted.
+	 * 
+	 * @return Future completed after calibration.
+	 */
+	CompletableFuture<Void> calibrateKeyDerivation(long targetDurationMillis, long maxMemoryInBytes);
+
 	/**
 	 * Encrypts each plaintext path component for its own.
 	 * 
@@ -69,6 +102,15 @@ public interface Cryptor extends SensitiveDataSwipeListener {
 	 */
 	String decryptPath(String encryptedPath, char encryptedPathSep, char cleartextPathSep, CryptorIOSupport ioSupport) throws DecryptFailedException;
 
+	/**
+	 * Decrypts multiple paths at once, like {@link #decryptPath(String, char, char, CryptorIOSupport)} does for a single path. Useful for
+	 * directory listings, as implementations may decrypt path components shared by multiple paths only once and in parallel.
+	 * 
+	 * @param encryptedPaths Relative paths (UTF-8 encoded)
+	 * @return Decrypted paths in the same order as the given encrypted paths. Paths, whose decryption failed, are <code>null</code>.
+	 */
+	List<String> decryptPaths(List<String> encryptedPaths, char encryptedPathSep, char cleartextPathSep, CryptorIOSupport ioSupport);
+
 	/**
 	 * @param metadataSupport Support object allowing the Cryptor to read and write its own metadata to the location of the encrypted file.
 	 * @return Content length of the decrypted file or <code>null</code> if unknown.
@@ -87,10 +129,14 @@ public interface Cryptor extends SensitiveDataSwipeListener {
 	Long decryptFile(SeekableByteChannel encryptedFile, OutputStream plaintextFile) throws IOException, DecryptFailedException;
 
 	/**
+	 * Decrypts the requested range. Only those parts of the file, that are needed to decrypt and authenticate the range, are read.
+	 * 
 	 * @param pos First byte (inclusive)
 	 * @param length Number of requested bytes beginning at pos.
 	 * @return Number of decrypted bytes. This might not be equal to the number of bytes requested due to potential overheads.
 	 * @throws DecryptFailedException If decryption failed
+	 * @throws MacAuthenticationFailedException If the requested range could be decrypted but its authentication failed. This exception
+	 *             is thrown after all requested bytes have been written.
 	 */
 	Long decryptRange(SeekableByteChannel encryptedFile, OutputStream plaintextFile, long pos, long length) throws IOException, DecryptFailedException;
 
@@ -6,6 +6,8 @@ import java.io.OutputStream;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.DirectoryStream.Filter;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
@@ -64,6 +66,21 @@ public class SamplingDecorator implements Cryptor, CryptorIOSampling {
 		cryptor.decryptMasterKey(in, password);
 	}
 
+	@Override
+	public CompletableFuture<Void> encryptMasterKeyAsync(OutputStream out, CharSequence password) {
+		return cryptor.encryptMasterKeyAsync(out, password);
+	}
+
+	@Override
+	public CompletableFuture<Void> decryptMasterKeyAsync(InputStream in, CharSequence password) {
+		return cryptor.decryptMasterKeyAsync(in, password);
+	}
+
+	@Override
+	public CompletableFuture<Void> calibrateKeyDerivation(long targetDurationMillis, long maxMemoryInBytes) {
+		return cryptor.calibrateKeyDerivation(targetDurationMillis, maxMemoryInBytes);
+	}
+
 	@Override
 	public String encryptPath(String cleartextPath, char encryptedPathSep, char cleartextPathSep, CryptorIOSupport ioSupport) {
 		encryptedBytes.addAndGet(StringUtils.length(cleartextPath));
@@ -76,6 +93,14 @@ public class SamplingDecorator implements Cryptor, CryptorIOSampling {
 		return cryptor.decryptPath(encryptedPath, encryptedPathSep, cleartextPathSep, ioSupport);
 	}
 
+	@Override
+	public List<String> decryptPaths(List<String> encryptedPaths, char encryptedPathSep, char cleartextPathSep, CryptorIOSupport ioSupport) {
+		for (final String encryptedPath : encryptedPaths) {
+			decryptedBytes.addAndGet(StringUtils.length(encryptedPath));
+		}
+		return cryptor.decryptPaths(encryptedPaths, encryptedPathSep, cleartextPathSep, ioSupport);
+	}
+
 	@Override
 	public Long decryptedContentLength(SeekableByteChannel encryptedFile) throws IOException {
 		return cryptor.decryptedContentLength(encryptedFile);
@@ -0,0 +1,23 @@
+package org.cryptomator.crypto.exceptions;
+
+public class UnsupportedVaultException extends DecryptFailedException {
+	private static final long serialVersionUID = -3428434296465970418L;
+
+	private final int detectedVersion;
+	private final int supportedVersion;
+
+	public UnsupportedVaultException(int detectedVersion, int supportedVersion) {
+		super(String.format("Vault version (%d) not supported, expected version %d.", detectedVersion, supportedVersion));
+		this.detectedVersion = detectedVersion;
+		this.supportedVersion = supportedVersion;
+	}
+
+	public int getDetectedVersion() {
+		return detectedVersion;
+	}
+
+	public int getSupportedVersion() {
+		return supportedVersion;
+	}
+
+}
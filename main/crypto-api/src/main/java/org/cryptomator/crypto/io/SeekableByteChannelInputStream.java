@@ -15,6 +15,7 @@ import java.nio.channels.SeekableByteChannel;
 
 public class SeekableByteChannelInputStream extends InputStream {
 	private final SeekableByteChannel channel;
+	private final ByteBuffer singleByteBuffer = ByteBuffer.allocate(1);
 	private volatile long markedPos = 0;
 
 	public SeekableByteChannelInputStream(SeekableByteChannel channel) {
@@ -22,11 +23,11 @@ public class SeekableByteChannelInputStream extends InputStream {
 	}
 
 	@Override
-	public int read() throws IOException {
-		final ByteBuffer buffer = ByteBuffer.allocate(1);
-		final int read = channel.read(buffer);
+	public synchronized int read() throws IOException {
+		singleByteBuffer.clear();
+		final int read = channel.read(singleByteBuffer);
 		if (read == 1) {
-			return buffer.get(0);
+			return singleByteBuffer.get(0) & 0xFF;
 		} else {
 			return -1;
 		}
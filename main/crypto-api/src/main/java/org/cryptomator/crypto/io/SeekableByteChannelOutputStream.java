@@ -16,17 +16,19 @@ import java.nio.channels.SeekableByteChannel;
 public class SeekableByteChannelOutputStream extends OutputStream {
 
 	private final SeekableByteChannel channel;
+	private final ByteBuffer singleByteBuffer = ByteBuffer.allocate(1);
 
 	public SeekableByteChannelOutputStream(SeekableByteChannel channel) {
 		this.channel = channel;
 	}
 
 	@Override
-	public void write(int b) throws IOException {
+	public synchronized void write(int b) throws IOException {
 		final byte actualByte = (byte) (b & 0x000000FF);
-		final ByteBuffer buffer = ByteBuffer.allocate(1);
-		buffer.put(actualByte);
-		channel.write(buffer);
+		singleByteBuffer.clear();
+		singleByteBuffer.put(actualByte);
+		singleByteBuffer.flip();
+		channel.write(singleByteBuffer);
 	}
 
 	@Override
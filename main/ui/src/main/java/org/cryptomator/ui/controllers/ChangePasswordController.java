@@ -1,14 +1,15 @@
 package org.cryptomator.ui.controllers;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletionException;
 
 import javafx.application.Platform;
 import javafx.beans.value.ObservableValue;
@@ -18,8 +19,8 @@ import javafx.fxml.Initializable;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 
-import org.cryptomator.crypto.exceptions.DecryptFailedException;
 import org.cryptomator.crypto.exceptions.UnsupportedKeyLengthException;
+import org.cryptomator.crypto.exceptions.UnsupportedVaultException;
 import org.cryptomator.crypto.exceptions.WrongPasswordException;
 import org.cryptomator.ui.controls.SecPasswordField;
 import org.cryptomator.ui.model.Vault;
@@ -70,10 +71,24 @@ public class ChangePasswordController implements Initializable {
 	// ****************************************
 
 	private void passwordFieldsDidChange(ObservableValue<? extends String> property, String oldValue, String newValue) {
+		changePasswordButton.setDisable(oldPasswordField.isDisabled() || !arePasswordsValid());
+	}
+
+	private boolean arePasswordsValid() {
 		boolean oldPasswordIsEmpty = oldPasswordField.getText().isEmpty();
 		boolean newPasswordIsEmpty = newPasswordField.getText().isEmpty();
 		boolean passwordsAreEqual = newPasswordField.getText().equals(retypePasswordField.getText());
-		changePasswordButton.setDisable(oldPasswordIsEmpty || newPasswordIsEmpty || !passwordsAreEqual);
+		return !oldPasswordIsEmpty && !newPasswordIsEmpty && passwordsAreEqual;
+	}
+
+	/**
+	 * Controls stay disabled, until decrypting, calibrating and re-encrypting the masterkey has completed.
+	 */
+	private void setControlsDisabled(boolean disable) {
+		oldPasswordField.setDisable(disable);
+		newPasswordField.setDisable(disable);
+		retypePasswordField.setDisable(disable);
+		changePasswordButton.setDisable(disable || !arePasswordsValid());
 	}
 
 	// ****************************************
@@ -82,42 +97,98 @@ public class ChangePasswordController implements Initializable {
 
 	@FXML
 	private void didClickChangePasswordButton(ActionEvent event) {
+		setControlsDisabled(true);
 		final Path masterKeyPath = vault.getPath().resolve(Vault.VAULT_MASTERKEY_FILE);
-		final Path masterKeyBackupPath = vault.getPath().resolve(Vault.VAULT_MASTERKEY_BACKUP_FILE);
 
-		// decrypt with old password:
+		// decrypt with old password. key derivation takes a while, so don't block the ui thread:
 		final CharSequence oldPassword = oldPasswordField.getCharacters();
 		try (final InputStream masterKeyInputStream = Files.newInputStream(masterKeyPath, StandardOpenOption.READ)) {
-			vault.getCryptor().decryptMasterKey(masterKeyInputStream, oldPassword);
-			Files.copy(masterKeyPath, masterKeyBackupPath, StandardCopyOption.REPLACE_EXISTING);
-		} catch (DecryptFailedException | IOException ex) {
-			messageLabel.setText(rb.getString("changePassword.errorMessage.decryptionFailed"));
-			LOG.error("Decryption failed for technical reasons.", ex);
-			newPasswordField.swipe();
-			retypePasswordField.swipe();
-			return;
-		} catch (WrongPasswordException e) {
+			vault.getCryptor().decryptMasterKeyAsync(masterKeyInputStream, oldPassword).whenComplete((nothing, exception) -> {
+				Platform.runLater(() -> didDecryptMasterKey(exception));
+			});
+		} catch (IOException ex) {
+			didDecryptMasterKey(ex);
+		} finally {
+			oldPasswordField.swipe();
+		}
+	}
+
+	private void didDecryptMasterKey(Throwable exception) {
+		final Throwable cause = (exception instanceof CompletionException) ? exception.getCause() : exception;
+		if (cause instanceof WrongPasswordException) {
+			setControlsDisabled(false);
 			messageLabel.setText(rb.getString("changePassword.errorMessage.wrongPassword"));
 			newPasswordField.swipe();
 			retypePasswordField.swipe();
 			Platform.runLater(oldPasswordField::requestFocus);
 			return;
-		} catch (UnsupportedKeyLengthException ex) {
+		} else if (cause instanceof UnsupportedKeyLengthException) {
+			setControlsDisabled(false);
 			messageLabel.setText(rb.getString("changePassword.errorMessage.unsupportedKeyLengthInstallJCE"));
-			LOG.warn("Unsupported Key-Length. Please install Oracle Java Cryptography Extension (JCE).", ex);
+			LOG.warn("Unsupported Key-Length. Please install Oracle Java Cryptography Extension (JCE).", cause);
+			newPasswordField.swipe();
+			retypePasswordField.swipe();
+			return;
+		} else if (cause instanceof UnsupportedVaultException) {
+			setControlsDisabled(false);
+			messageLabel.setText(rb.getString("changePassword.errorMessage.unsupportedVaultFormat"));
+			LOG.warn("Unsupported vault format.", cause);
+			newPasswordField.swipe();
+			retypePasswordField.swipe();
+			return;
+		} else if (cause != null) {
+			setControlsDisabled(false);
+			messageLabel.setText(rb.getString("changePassword.errorMessage.decryptionFailed"));
+			LOG.error("Decryption failed for technical reasons.", cause);
 			newPasswordField.swipe();
 			retypePasswordField.swipe();
 			return;
-		} finally {
-			oldPasswordField.swipe();
 		}
 
 		// when we reach this line, decryption was successful.
+		final Path masterKeyPath = vault.getPath().resolve(Vault.VAULT_MASTERKEY_FILE);
+		final Path masterKeyBackupPath = vault.getPath().resolve(Vault.VAULT_MASTERKEY_BACKUP_FILE);
+		try {
+			Files.copy(masterKeyPath, masterKeyBackupPath, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException ex) {
+			setControlsDisabled(false);
+			messageLabel.setText(rb.getString("changePassword.errorMessage.decryptionFailed"));
+			LOG.error("Creating backup failed.", ex);
+			newPasswordField.swipe();
+			retypePasswordField.swipe();
+			return;
+		}
+
+		// upgrade key derivation parameters, if this machine allows stronger ones:
+		vault.getCryptor().calibrateKeyDerivation(Vault.KEY_DERIVATION_TARGET_MILLIS, Vault.KEY_DERIVATION_MAX_MEMORY).whenComplete((nothing, ex) -> {
+			if (ex != null) {
+				LOG.warn("Calibration of key derivation failed. Keeping current parameters.", ex);
+			}
+			Platform.runLater(this::encryptMasterKeyWithNewPassword);
+		});
+	}
 
-		// encrypt with new password:
+	private void encryptMasterKeyWithNewPassword() {
+		// encrypt with new password. the masterkey file is only replaced after the key derivation finished:
 		final CharSequence newPassword = newPasswordField.getCharacters();
-		try (final OutputStream masterKeyOutputStream = Files.newOutputStream(masterKeyPath, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.SYNC)) {
-			vault.getCryptor().encryptMasterKey(masterKeyOutputStream, newPassword);
+		final ByteArrayOutputStream masterKeyOutputStream = new ByteArrayOutputStream();
+		try {
+			vault.getCryptor().encryptMasterKeyAsync(masterKeyOutputStream, newPassword).whenComplete((nothing, ex) -> {
+				Platform.runLater(() -> didEncryptMasterKey(masterKeyOutputStream.toByteArray(), ex));
+			});
+		} finally {
+			newPasswordField.swipe();
+			retypePasswordField.swipe();
+		}
+	}
+
+	private void didEncryptMasterKey(byte[] encryptedMasterKey, Throwable exception) {
+		final Path masterKeyPath = vault.getPath().resolve(Vault.VAULT_MASTERKEY_FILE);
+		try {
+			if (exception != null) {
+				throw new IOException("Encrypting masterkey failed.", exception);
+			}
+			Files.write(masterKeyPath, encryptedMasterKey, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.SYNC);
 			messageLabel.setText(rb.getString("changePassword.infoMessage.success"));
 			Platform.runLater(this::didChangePassword);
 			// At this point the backup is still using the old password.
@@ -127,8 +198,7 @@ public class ChangePasswordController implements Initializable {
 			LOG.error("Re-encryption failed for technical reasons. Restoring Backup.", ex);
 			this.restoreBackupQuietly();
 		} finally {
-			newPasswordField.swipe();
-			retypePasswordField.swipe();
+			setControlsDisabled(false);
 		}
 	}
 
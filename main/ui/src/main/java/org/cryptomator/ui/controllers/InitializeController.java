@@ -8,8 +8,8 @@
  ******************************************************************************/
 package org.cryptomator.ui.controllers;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.URL;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
@@ -18,6 +18,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ResourceBundle;
 
+import javafx.application.Platform;
 import javafx.beans.value.ObservableValue;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -74,10 +75,36 @@ public class InitializeController implements Initializable {
 	@FXML
 	protected void initializeVault(ActionEvent event) {
 		setControlsDisabled(true);
-		final Path masterKeyPath = vault.getPath().resolve(Vault.VAULT_MASTERKEY_FILE);
+		// choose key derivation parameters suitable for this machine before setting the password:
+		vault.getCryptor().calibrateKeyDerivation(Vault.KEY_DERIVATION_TARGET_MILLIS, Vault.KEY_DERIVATION_MAX_MEMORY).whenComplete((nothing, exception) -> {
+			if (exception != null) {
+				LOG.warn("Calibration of key derivation failed. Using default parameters.", exception);
+			}
+			Platform.runLater(this::encryptMasterKey);
+		});
+	}
+
+	private void encryptMasterKey() {
+		// key derivation takes a while, so don't block the ui thread. the masterkey file is only written after the key derivation finished:
 		final CharSequence password = passwordField.getCharacters();
-		try (OutputStream masterKeyOutputStream = Files.newOutputStream(masterKeyPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
-			vault.getCryptor().encryptMasterKey(masterKeyOutputStream, password);
+		final ByteArrayOutputStream masterKeyOutputStream = new ByteArrayOutputStream();
+		try {
+			vault.getCryptor().encryptMasterKeyAsync(masterKeyOutputStream, password).whenComplete((nothing, ex) -> {
+				Platform.runLater(() -> didEncryptMasterKey(masterKeyOutputStream.toByteArray(), ex));
+			});
+		} finally {
+			passwordField.swipe();
+			retypePasswordField.swipe();
+		}
+	}
+
+	private void didEncryptMasterKey(byte[] encryptedMasterKey, Throwable exception) {
+		try {
+			if (exception != null) {
+				throw new IOException("Encrypting masterkey failed.", exception);
+			}
+			final Path masterKeyPath = vault.getPath().resolve(Vault.VAULT_MASTERKEY_FILE);
+			Files.write(masterKeyPath, encryptedMasterKey, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
 			if (listener != null) {
 				listener.didInitialize(this);
 			}
@@ -89,8 +116,6 @@ public class InitializeController implements Initializable {
 			LOG.error("I/O Exception", ex);
 		} finally {
 			setControlsDisabled(false);
-			passwordField.swipe();
-			retypePasswordField.swipe();
 		}
 	}
 
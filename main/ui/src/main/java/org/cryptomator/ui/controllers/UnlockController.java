@@ -16,6 +16,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
@@ -31,8 +32,8 @@ import javafx.scene.control.TextField;
 import javafx.scene.input.KeyEvent;
 
 import org.apache.commons.lang3.CharUtils;
-import org.cryptomator.crypto.exceptions.DecryptFailedException;
 import org.cryptomator.crypto.exceptions.UnsupportedKeyLengthException;
+import org.cryptomator.crypto.exceptions.UnsupportedVaultException;
 import org.cryptomator.crypto.exceptions.WrongPasswordException;
 import org.cryptomator.ui.controls.SecPasswordField;
 import org.cryptomator.ui.model.Vault;
@@ -100,10 +101,50 @@ public class UnlockController implements Initializable {
 		setControlsDisabled(true);
 		progressIndicator.setVisible(true);
 		final Path masterKeyPath = vault.getPath().resolve(Vault.VAULT_MASTERKEY_FILE);
-		final Path masterKeyBackupPath = vault.getPath().resolve(Vault.VAULT_MASTERKEY_BACKUP_FILE);
 		final CharSequence password = passwordField.getCharacters();
 		try (final InputStream masterKeyInputStream = Files.newInputStream(masterKeyPath, StandardOpenOption.READ)) {
-			vault.getCryptor().decryptMasterKey(masterKeyInputStream, password);
+			// key derivation takes a while, so don't block the ui thread:
+			vault.getCryptor().decryptMasterKeyAsync(masterKeyInputStream, password).whenComplete((nothing, exception) -> {
+				Platform.runLater(() -> didDecryptMasterKey(exception));
+			});
+		} catch (IOException ex) {
+			didDecryptMasterKey(ex);
+		} finally {
+			passwordField.swipe();
+		}
+	}
+
+	private void didDecryptMasterKey(Throwable exception) {
+		final Throwable cause = (exception instanceof CompletionException) ? exception.getCause() : exception;
+		if (cause == null) {
+			didDecryptMasterKey();
+		} else if (cause instanceof WrongPasswordException) {
+			setControlsDisabled(false);
+			progressIndicator.setVisible(false);
+			messageLabel.setText(rb.getString("unlock.errorMessage.wrongPassword"));
+			Platform.runLater(passwordField::requestFocus);
+		} else if (cause instanceof UnsupportedKeyLengthException) {
+			setControlsDisabled(false);
+			progressIndicator.setVisible(false);
+			messageLabel.setText(rb.getString("unlock.errorMessage.unsupportedKeyLengthInstallJCE"));
+			LOG.warn("Unsupported Key-Length. Please install Oracle Java Cryptography Extension (JCE).", cause);
+		} else if (cause instanceof UnsupportedVaultException) {
+			setControlsDisabled(false);
+			progressIndicator.setVisible(false);
+			messageLabel.setText(rb.getString("unlock.errorMessage.unsupportedVaultFormat"));
+			LOG.warn("Unsupported vault format.", cause);
+		} else {
+			setControlsDisabled(false);
+			progressIndicator.setVisible(false);
+			messageLabel.setText(rb.getString("unlock.errorMessage.decryptionFailed"));
+			LOG.error("Decryption failed for technical reasons.", cause);
+		}
+	}
+
+	private void didDecryptMasterKey() {
+		final Path masterKeyPath = vault.getPath().resolve(Vault.VAULT_MASTERKEY_FILE);
+		final Path masterKeyBackupPath = vault.getPath().resolve(Vault.VAULT_MASTERKEY_BACKUP_FILE);
+		try {
 			if (!vault.startServer()) {
 				messageLabel.setText(rb.getString("unlock.messageLabel.startServerFailed"));
 				vault.getCryptor().swipeSensitiveData();
@@ -117,23 +158,11 @@ public class UnlockController implements Initializable {
 			FXThreads.runOnMainThreadWhenFinished(exec, futureMount, (result) -> {
 				setControlsDisabled(false);
 			});
-		} catch (DecryptFailedException | IOException ex) {
+		} catch (IOException ex) {
 			setControlsDisabled(false);
 			progressIndicator.setVisible(false);
 			messageLabel.setText(rb.getString("unlock.errorMessage.decryptionFailed"));
 			LOG.error("Decryption failed for technical reasons.", ex);
-		} catch (WrongPasswordException e) {
-			setControlsDisabled(false);
-			progressIndicator.setVisible(false);
-			messageLabel.setText(rb.getString("unlock.errorMessage.wrongPassword"));
-			Platform.runLater(passwordField::requestFocus);
-		} catch (UnsupportedKeyLengthException ex) {
-			setControlsDisabled(false);
-			progressIndicator.setVisible(false);
-			messageLabel.setText(rb.getString("unlock.errorMessage.unsupportedKeyLengthInstallJCE"));
-			LOG.warn("Unsupported Key-Length. Please install Oracle Java Cryptography Extension (JCE).", ex);
-		} finally {
-			passwordField.swipe();
 		}
 	}
 
@@ -35,6 +35,16 @@ public class Vault implements Serializable {
 	public static final String VAULT_MASTERKEY_FILE = "masterkey.cryptomator";
 	public static final String VAULT_MASTERKEY_BACKUP_FILE = "masterkey.cryptomator.bkup";
 
+	/**
+	 * Key derivation parameters are calibrated, so unlocking takes about this long on the machine, on which the password has been set.
+	 */
+	public static final long KEY_DERIVATION_TARGET_MILLIS = 1000;
+
+	/**
+	 * Maximum memory used for key derivation, when calibrating its parameters.
+	 */
+	public static final long KEY_DERIVATION_MAX_MEMORY = 256L * 1024 * 1024;
+
 	private final Path path;
 	private final WebDavServer server;
 	private final Cryptor cryptor;